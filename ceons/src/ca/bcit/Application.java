@@ -60,7 +60,7 @@ public class Application extends javafx.application.Application {
         GridPane root = loader.load();
         Scene scene = new Scene(root);
         primaryStage.setScene(scene);
-        primaryStage.getIcons().add(Settings.bcitLogo);
+        primaryStage.getIcons().add(Settings.getBcitLogo());
         primaryStage.show();
         primaryStage.setMinWidth(primaryStage.getWidth());
         primaryStage.setMinHeight(primaryStage.getHeight());
@@ -76,12 +76,12 @@ public class Application extends javafx.application.Application {
         map.heightProperty().bind(pane.heightProperty());
     }
 
-    private static void registerAlgorithms() throws Exception {
+    static void registerAlgorithms() throws Exception {
         Settings.registerAlgorithm("ca.bcit.net.algo.SPF");
         Settings.registerAlgorithm("ca.bcit.net.algo.AMRA");
     }
 
-    private static void registerYamlSerializableClasses() throws NoSuchMethodException {
+    static void registerYamlSerializableClasses() throws NoSuchMethodException {
         YamlSerializable.registerSerializableClass(NetworkNode.class);
         YamlSerializable.registerSerializableClass(NetworkLink.class);
         YamlSerializable.registerSerializableClass(Network.class);
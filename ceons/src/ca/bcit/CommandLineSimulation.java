@@ -0,0 +1,208 @@
+package ca.bcit;
+
+import ca.bcit.graph.Graph;
+import ca.bcit.io.EventLog;
+import ca.bcit.io.Logger;
+import ca.bcit.io.PairedComparison;
+import ca.bcit.io.SimulationSummary;
+import ca.bcit.net.Defragmenter;
+import ca.bcit.net.Modulation;
+import ca.bcit.net.Simulation;
+import ca.bcit.net.SimulationEngine;
+import ca.bcit.net.SweepExecutor;
+import ca.bcit.net.algo.IRMSAAlgorithm;
+import ca.bcit.net.demand.generator.TrafficGenerator;
+import ca.bcit.net.spectrum.SpectrumAssignmentPolicy;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Runs simulation sweeps without a display, e.g.
+ * <pre>
+ * java -cp ceons.jar ca.bcit.CommandLineSimulation --project us26.eon --algorithms AMRA,SPF
+ *      --erlangs 300:700:20 --seeds 1,2,3 --demands 100000 --best-paths 3
+ * </pre>
+ * Every simulation writes its summary into the output directory, like the multiple simulations run from the GUI.
+ * The simulations run concurrently on all processors unless {@code --threads} says otherwise.
+ * {@code --paths-limit} bounds the number of paths calculated for each pair of nodes when the project is loaded.
+ * With {@code --checkpoints} every simulation saves its state periodically, running the same command again
+ * continues the interrupted simulations instead of starting them over.
+ * With {@code --ci-half-width} a simulation stops as soon as the 95% confidence interval of its blocked volume
+ * percentage is narrower than the given fraction of the percentage.
+ * With {@code --crn} the algorithms see the same demands and failures for a seed, and the differences of their
+ * blocked volume percentages from the first algorithm are reported with 95% confidence intervals over the seeds.
+ * With {@code --record-traces} the generated demands are saved as binary traces, which {@code --trace} replays
+ * instead of generating demands. With {@code --event-logs} every simulation logs what happens to each of its demands.
+ * {@code --fit} and {@code --backup-fit} choose where segments of working and backup paths are placed:
+ * first, last, best, exact or random, first and last by default.
+ * With {@code --defrag} the working lightpaths are moved toward the low end of the spectrum periodically,
+ * when the fragmentation reaches a threshold or when a demand is blocked.
+ */
+public class CommandLineSimulation {
+
+	private static final String USAGE = "Usage: CommandLineSimulation --project <file.eon> [--algorithms AMRA,SPF] [--generator <index or name>]" +
+			" [--erlangs <low>:<high>:<step> | <erlang>] [--seeds <seed>,...] [--demands <count>] [--alpha <value>] [--best-paths <count>]" +
+			" [--paths-limit <count>]" +
+			" [--modulations BPSK,QPSK,...] [--fit <policy>] [--backup-fit <policy>] [--no-replica-preservation] [--threads <count>] [--output <directory>]" +
+			" [--checkpoints <directory>] [--checkpoint-interval <demands>] [--ci-half-width <relative> [--batch-size <demands>] | --crn]" +
+			" [--record-traces <directory> | --trace <file.trace>] [--event-logs <directory> [--event-log-format binary|csv]]" +
+			" [--defrag periodic|threshold|block [--defrag-interval <steps>] [--defrag-threshold <fragmentation>] [--defrag-moves <count>]]";
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		Logger.setOutput(System.out);
+
+		try {
+			Map<String, String> options = parseOptions(args);
+			if (!options.containsKey("project"))
+				throw new IllegalArgumentException("Missing --project");
+
+			Application.registerAlgorithms();
+			Application.registerYamlSerializableClasses();
+
+			File projectFile = new File(options.get("project"));
+			Logger.info("Loading project from " + projectFile + "...");
+			SimulationEngine engine = SimulationEngine.load(projectFile,
+					Integer.parseInt(options.getOrDefault("paths-limit", String.valueOf(Graph.DEFAULT_PATHS_LIMIT))));
+			Logger.info("Max best paths count: " + engine.getNetwork().getMaxPathsCount());
+
+			List<IRMSAAlgorithm> algorithms = new ArrayList<>();
+			if (options.containsKey("algorithms"))
+				for (String key : options.get("algorithms").split(",")) {
+					IRMSAAlgorithm algorithm = Settings.registeredAlgorithms.get(key.trim());
+					if (algorithm == null)
+						throw new IllegalArgumentException("Unknown algorithm: " + key);
+					algorithms.add(algorithm);
+				}
+			else
+				algorithms.addAll(Settings.registeredAlgorithms.values());
+
+			int generatorIndex = engine.getTrafficGenerators().indexOf(parseGenerator(engine, options.getOrDefault("generator", "0")));
+
+			List<Modulation> modulations = new ArrayList<>();
+			if (options.containsKey("modulations"))
+				for (String modulation : options.get("modulations").split(","))
+					modulations.add(Modulation.valueOf(modulation.trim().toUpperCase()));
+			else
+				modulations.addAll(Arrays.asList(Modulation.values()));
+
+			int bestPaths = Integer.parseInt(options.getOrDefault("best-paths", String.valueOf(Math.min(3, engine.getNetwork().getMaxPathsCount()))));
+			engine.configure(bestPaths, modulations);
+			engine.getNetwork().setSpectrumAssignmentPolicies(parseFit(options.getOrDefault("fit", "first")),
+					parseFit(options.getOrDefault("backup-fit", "last")));
+
+			String[] erlangs = options.getOrDefault("erlangs", "300").split(":");
+			int erlangRangeLow = Integer.parseInt(erlangs[0]);
+			int erlangRangeHigh = erlangs.length > 1 ? Integer.parseInt(erlangs[1]) : erlangRangeLow;
+			int erlangStep = erlangs.length > 2 ? Integer.parseInt(erlangs[2]) : 1;
+
+			List<Long> seeds = new ArrayList<>();
+			for (String seed : options.getOrDefault("seeds", "1").split(","))
+				seeds.add(Long.parseLong(seed.trim()));
+
+			int demandsCount = Integer.parseInt(options.getOrDefault("demands", "10000"));
+			double alpha = Double.parseDouble(options.getOrDefault("alpha", "0"));
+			boolean replicaPreservation = !options.containsKey("no-replica-preservation");
+			File outputDirectory = new File(options.getOrDefault("output", Simulation.RESULTS_DATA_DIR_NAME + File.separator + engine.getProjectName().toUpperCase()));
+
+			int threads = Integer.parseInt(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+			if (options.containsKey("checkpoints"))
+				engine.setCheckpoints(new File(options.get("checkpoints")), Integer.parseInt(options.getOrDefault("checkpoint-interval", "10000")));
+
+			if (options.containsKey("ci-half-width"))
+				engine.setStoppingRule(Double.parseDouble(options.get("ci-half-width")), Integer.parseInt(options.getOrDefault("batch-size", "1000")));
+
+			if (options.containsKey("crn")) {
+				if (options.containsKey("ci-half-width"))
+					throw new IllegalArgumentException("--crn cannot be combined with --ci-half-width");
+				engine.setCommonRandomNumbers(true);
+			}
+
+			if (options.containsKey("record-traces")) {
+				if (options.containsKey("trace") || options.containsKey("checkpoints") || options.containsKey("ci-half-width"))
+					throw new IllegalArgumentException("--record-traces cannot be combined with --trace, --checkpoints or --ci-half-width");
+				engine.setTraceRecordings(new File(options.get("record-traces")));
+			}
+			if (options.containsKey("trace"))
+				engine.setTrace(new File(options.get("trace")));
+
+			if (options.containsKey("event-logs"))
+				engine.setEventLogs(new File(options.get("event-logs")),
+						EventLog.Format.valueOf(options.getOrDefault("event-log-format", "binary").toUpperCase()));
+
+			if (options.containsKey("defrag"))
+				engine.setDefragmentation(Defragmenter.Trigger.valueOf(options.get("defrag").toUpperCase()),
+						Integer.parseInt(options.getOrDefault("defrag-interval", "100")),
+						Double.parseDouble(options.getOrDefault("defrag-threshold", "0.5")),
+						Integer.parseInt(options.getOrDefault("defrag-moves", "10")));
+
+			SweepExecutor executor = new SweepExecutor(engine::fork, threads);
+
+			List<SimulationSummary> summaries = executor.execute(SweepExecutor.createRuns(algorithms, generatorIndex, seeds,
+					erlangRangeLow, erlangRangeHigh, erlangStep, alpha, demandsCount, replicaPreservation));
+			for (SimulationSummary summary : summaries) {
+				String fileName = summary.save(outputDirectory, engine.getProjectName());
+				Logger.info(summary.getAlgorithm() + " erlang " + summary.getErlangValue() + " seed " + summary.getSeedValue() +
+						": " + summary.getTotalBlockedVolumePercentage() + "% blocked" + (summary.getBlockedVolumePercentageMean() == null ? ""
+						: " (steady state " + summary.getBlockedVolumePercentageMean() + " +/- " + summary.getBlockedVolumePercentageHalfWidth() +
+						"% after " + summary.getSimulatedDemandsCount() + " demands)") + (summary.getDefragmentationsCount() == null ? ""
+						: ", " + summary.getMovedLightpathsCount() + " lightpaths moved in " + summary.getDefragmentationsCount() +
+						" defragmentations, " + summary.getDefragmentationRecoveredVolumePercentage() + "% recovered") + " -> " + fileName);
+			}
+
+			if (options.containsKey("crn") && algorithms.size() > 1) {
+				PairedComparison comparison = PairedComparison.of(summaries, algorithms.get(0).getName());
+				for (PairedComparison.Difference difference : comparison.getDifferences())
+					Logger.info(difference.getAlgorithm() + " - " + difference.getBaselineAlgorithm() + " erlang " + difference.getErlangValue() +
+							": " + difference.getBlockedVolumePercentageDifference() + (difference.getBlockedVolumePercentageDifferenceHalfWidth() == null
+							? "" : " +/- " + difference.getBlockedVolumePercentageDifferenceHalfWidth()) + " percentage points over " +
+							difference.getPairsCount() + " seeds" + (difference.isSignificant() ? " (significant)" : ""));
+				Logger.info("Paired differences -> " + comparison.save(outputDirectory, engine.getProjectName()));
+			}
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new HashMap<>();
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--"))
+				throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+			String key = args[i].substring(2);
+			if (i + 1 < args.length && !args[i + 1].startsWith("--"))
+				options.put(key, args[++i]);
+			else
+				options.put(key, "");
+		}
+		return options;
+	}
+
+	private static SpectrumAssignmentPolicy parseFit(String value) {
+		for (SpectrumAssignmentPolicy.Standard policy : SpectrumAssignmentPolicy.Standard.values())
+			if (policy.name().equalsIgnoreCase(value.trim() + "_fit"))
+				return policy;
+		throw new IllegalArgumentException("Unknown spectrum assignment policy: " + value);
+	}
+
+	private static TrafficGenerator parseGenerator(SimulationEngine engine, String value) {
+		TrafficGenerator generator = engine.getTrafficGenerator(value);
+		if (generator != null)
+			return generator;
+		try {
+			return engine.getTrafficGenerators().get(Integer.parseInt(value));
+		}
+		catch (NumberFormatException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Unknown traffic generator: " + value);
+		}
+	}
+}
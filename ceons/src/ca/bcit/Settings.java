@@ -15,7 +15,7 @@ public class Settings {
     public static LocaleEnum CURRENT_LOCALE = LocaleEnum.EN_CA;
     public static HashMap<String, IRMSAAlgorithm> registeredAlgorithms = new HashMap<>();
     private static ResourceBundle resourceBundle;
-    static Image bcitLogo = new Image(Settings.class.getResourceAsStream("/ca/bcit/jfx/res/images/LogoBCIT.png"));
+    private static Image bcitLogo;
     static URL mainWindowResourceUrl = Settings.class.getResource("/ca/bcit/jfx/res/views/MainWindow.fxml");
     static URL splashScreenResourceUrl = Settings.class.getResource("/ca/bcit/jfx/res/views/SplashScreen.fxml");
     public static float topLeftCornerXCoordinate = 0;
@@ -42,6 +42,14 @@ public class Settings {
         }
     }
 
+    static Image getBcitLogo() {
+        // loaded on first use so that the settings can be read without a JavaFX toolkit (headless simulations)
+        if (bcitLogo == null)
+            bcitLogo = new Image(Settings.class.getResourceAsStream("/ca/bcit/jfx/res/images/LogoBCIT.png"));
+
+        return bcitLogo;
+    }
+
     public static ResourceBundle getCurrentResources() {
         if (resourceBundle == null || !resourceBundle.getLocale().equals(LocaleUtils.getLocaleFromLocaleEnum(Settings.CURRENT_LOCALE)))
             resourceBundle = ResourceBundle.getBundle("ca.bcit.bundles.lang", LocaleUtils.getLocaleFromLocaleEnum(Settings.CURRENT_LOCALE));
@@ -4,9 +4,17 @@ import ca.bcit.utils.collections.HashArray;
 import ca.bcit.utils.collections.Identifiable;
 import ca.bcit.utils.collections.IdentifiableSet;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Path<N>, G extends Graph<N, L, P, G>> {
 	private final IdentifiableSet<N> nodes;
@@ -21,6 +29,20 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 		pathBuilder.graph = (G) this;
 	}
 
+	/**
+	 * Creates a graph sharing the nodes, links and calculated paths of the given graph.
+	 * The topology must not change while graphs are sharing it.
+	 */
+	@SuppressWarnings("unchecked")
+	protected Graph(Graph<N, L, P, G> graph, PathBuilder<N, P, G> pathBuilder) {
+		nodes = graph.nodes;
+		relations = graph.relations;
+		adjacency = graph.getAdjacency();
+		pathsLimit = graph.pathsLimit;
+		this.pathBuilder = pathBuilder;
+		pathBuilder.graph = (G) this;
+	}
+
 	protected boolean contains(N node) {
 		return nodes.contains(node);
 	}
@@ -34,6 +56,7 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 				Relation<N, L, P> relation = new Relation<>(n, node);
 				relations.add(relation);
 			}
+		adjacency = null;
 		return true;
 	}
 
@@ -49,6 +72,7 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 		nodes.remove(node);
 		relations.rehash();
 		relations.resize(getNodesPairsCount());
+		adjacency = null;
 		return true;
 	}
 
@@ -60,6 +84,7 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 		Relation<N, L, P> relation = relations.get(Relation.hash(nodeA.hashCode(), nodeB.hashCode()));
 		L oldLink = relation.link;
 		relation.link = link;
+		adjacency = null;
 		return oldLink;
 	}
 
@@ -103,11 +128,8 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 	public ArrayList<N> getAdjacentNodes(N node) {
 		ArrayList<N> nodes = new ArrayList<>();
 
-		for (N n : this.nodes)
-			if (n != node) {
-				L link = getLink(n, node);
-				if (link != null) nodes.add(n);
-			}
+		for (int i = 0; i < getNeighboursCount(node); i++)
+			nodes.add(getNeighbour(node, i));
 
 		return nodes;
 	}
@@ -116,47 +138,178 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 		return nodes.size() * (nodes.size() - 1) / 2;
 	}
 
+	// Adjacency
+
+	/**
+	 * Links of every node in compressed sparse row form: the neighbours of the node with ID i are at the indices
+	 * from offsets[i] to offsets[i + 1] - 1, ordered by ID
+	 */
+	private static final class Adjacency {
+		final int[] offsets;
+		final int[] neighbours;
+		// relations of the links to the neighbours
+		final int[] links;
+		// numbers of the links by relation, -1 where the nodes are not linked
+		final int[] linkIndices;
+		final int linksCount;
+
+		Adjacency(int[] offsets, int[] neighbours, int[] links, int[] linkIndices, int linksCount) {
+			this.offsets = offsets;
+			this.neighbours = neighbours;
+			this.links = links;
+			this.linkIndices = linkIndices;
+			this.linksCount = linksCount;
+		}
+	}
+
+	// built when first needed after the topology changes
+	private Adjacency adjacency;
+
+	private Adjacency getAdjacency() {
+		Adjacency adjacency = this.adjacency;
+		if (adjacency == null) {
+			int[] offsets = new int[nodes.size() + 1];
+			int[] linkIndices = new int[getNodesPairsCount()];
+			int linksCount = 0;
+			for (int j = 0; j < nodes.size(); j++)
+				for (int i = 0; i < j; i++)
+					if (relations.get(Relation.hash(i, j)).link != null) {
+						offsets[i + 1]++;
+						offsets[j + 1]++;
+						linkIndices[Relation.hash(i, j)] = linksCount++;
+					}
+					else
+						linkIndices[Relation.hash(i, j)] = -1;
+			for (int i = 0; i < nodes.size(); i++)
+				offsets[i + 1] += offsets[i];
+
+			int[] neighbours = new int[offsets[nodes.size()]];
+			int[] links = new int[neighbours.length];
+			int[] next = Arrays.copyOf(offsets, nodes.size());
+			for (int i = 0; i < nodes.size(); i++)
+				for (int j = 0; j < nodes.size(); j++)
+					if (i != j && relations.get(Relation.hash(i, j)).link != null) {
+						neighbours[next[i]] = j;
+						links[next[i]++] = Relation.hash(i, j);
+					}
+			adjacency = new Adjacency(offsets, neighbours, links, linkIndices, linksCount);
+			this.adjacency = adjacency;
+		}
+		return adjacency;
+	}
+
+	/**
+	 * @return number of nodes linked with the node
+	 */
+	public int getNeighboursCount(N node) {
+		Adjacency adjacency = getAdjacency();
+		return adjacency.offsets[node.hashCode() + 1] - adjacency.offsets[node.hashCode()];
+	}
+
+	/**
+	 * Neighbours are ordered by ID, so iterating over the indices visits them without allocating anything
+	 * @return neighbour of the node at the index
+	 */
+	public N getNeighbour(N node, int index) {
+		Adjacency adjacency = getAdjacency();
+		return nodes.get(adjacency.neighbours[adjacency.offsets[node.hashCode()] + index]);
+	}
+
+	/**
+	 * @return number of links of the graph
+	 */
+	public int getLinksCount() {
+		return getAdjacency().linksCount;
+	}
+
+	/**
+	 * Links are numbered from 0 in the order of their relations, so the numbers can index arrays and bitmaps of links
+	 * @return number of the link between the nodes, -1 if they are not linked
+	 */
+	public int getLinkIndex(N nodeA, N nodeB) {
+		if (nodeA == nodeB)
+			return -1;
+		return getAdjacency().linkIndices[Relation.hash(nodeA.hashCode(), nodeB.hashCode())];
+	}
+
+	/**
+	 * @return link between the node and its neighbour at the index
+	 */
+	public L getNeighbourLink(N node, int index) {
+		Adjacency adjacency = getAdjacency();
+		return relations.get(adjacency.links[adjacency.offsets[node.hashCode()] + index]).link;
+	}
+
 	// Pathfinding
 
-	private N finishNode;
-	private Relation<N, L, P> currentRelation;
+	/**
+	 * Default number of paths calculated for each pair of nodes
+	 */
+	public static final int DEFAULT_PATHS_LIMIT = 1000;
 
-	private void depthFirstSearch(N currentNode) {
-		ArrayList<N> adjacentNodes = getAdjacentNodes(currentNode);
-		for (N node : adjacentNodes) {
-			if (pathBuilder.contains(node))
-				continue;
+	private int pathsLimit = DEFAULT_PATHS_LIMIT;
 
-			if (node.equals(finishNode)) {
-				pathBuilder.addNode(node);
-				currentRelation.paths.add(pathBuilder.getPath());
-				pathBuilder.removeTail();
-				break;
-			}
-		}
+	public int getPathsLimit() {
+		return pathsLimit;
+	}
 
-		for (N node : adjacentNodes) {
-			if (pathBuilder.contains(node) || node.equals(finishNode))
-				continue;
+	/**
+	 * @param pathsLimit number of paths calculated for each pair of nodes, takes effect when the paths are calculated again
+	 */
+	public void setPathsLimit(int pathsLimit) {
+		if (pathsLimit <= 0)
+			throw new IllegalArgumentException("paths_limit_must_be_positive");
+		this.pathsLimit = pathsLimit;
+	}
 
-			pathBuilder.addNode(node);
-			depthFirstSearch(node);
-			pathBuilder.removeTail();
-		}
+	/**
+	 * Weight of a link. Paths are ranked by their number of links and then by the sum of the weights of their links,
+	 * which has to agree with the ordering of the paths.
+	 */
+	protected long getWeight(L link) {
+		return 0;
 	}
 
+	/**
+	 * Calculates the best paths of every pair of nodes, at most the limit of paths for each pair, with Yen's algorithm.
+	 * Paths of the same rank come in the order a depth-first search would find them. The pairs are calculated in parallel
+	 * on the common fork-join pool, the progress is reported on the calling thread once per pair.
+	 * @return number of paths every pair of nodes has
+	 */
 	public int calculatePaths(Runnable progressUpdate) {
-		int maxPathsPerPair = Integer.MAX_VALUE;
+		List<N> nodes = getNodes();
+		Adjacency adjacency = getAdjacency();
+		int[][] neighbours = new int[nodes.size()][];
+		long[][] weights = new long[nodes.size()][];
+		for (int i = 0; i < nodes.size(); i++) {
+			neighbours[i] = Arrays.copyOfRange(adjacency.neighbours, adjacency.offsets[i], adjacency.offsets[i + 1]);
+			weights[i] = new long[neighbours[i].length];
+			for (int j = 0; j < neighbours[i].length; j++)
+				weights[i][j] = getWeight(relations.get(adjacency.links[adjacency.offsets[i] + j]).link);
+		}
+
+		int limit = pathsLimit;
+		List<ForkJoinTask<List<P>>> tasks = new ArrayList<>();
 		for (Relation<N, L, P> relation : relations) {
 			relation.paths.clear();
-			currentRelation = relation;
-			finishNode = relation.nodeB;
-			pathBuilder.init();
-			pathBuilder.addNode(relation.nodeA);
-			depthFirstSearch(relation.nodeA);
+			int source = relation.nodeA.hashCode(), destination = relation.nodeB.hashCode();
+			tasks.add(ForkJoinPool.commonPool().submit(() -> {
+				List<P> paths = new ArrayList<>();
+				for (int[] path : new KShortestPaths(neighbours, weights).find(source, destination, limit)) {
+					List<N> pathNodes = new ArrayList<>(path.length);
+					for (int node : path)
+						pathNodes.add(nodes.get(node));
+					paths.add(pathBuilder.getPath(pathNodes));
+				}
+				return paths;
+			}));
+		}
+
+		int maxPathsPerPair = Integer.MAX_VALUE, index = 0;
+		for (Relation<N, L, P> relation : relations) {
+			List<P> paths = tasks.get(index++).join();
+			relation.paths.addAll(paths.subList(0, Math.min(paths.size(), maxPathsPerPair)));
 			Collections.sort(relation.paths);
-			if (relation.paths.size() > maxPathsPerPair)
-				relation.paths.subList(maxPathsPerPair, relation.paths.size()).clear();
 
 			int max = 0;
 			if (maxPathsPerPair == Integer.MAX_VALUE) {
@@ -174,4 +327,77 @@ public class Graph<N extends Identifiable, L extends Comparable<L>, P extends Pa
 		}
 		return maxPathsPerPair;
 	}
-}
\ No newline at end of file
+
+	// Paths in binary form
+
+	// changes whenever the calculated paths could differ for the same topology
+	private static final long PATHS_FORMAT_VERSION = 1;
+
+	/**
+	 * 64-bit FNV-1a hash of everything the calculated paths depend on: the number of nodes, which pairs of nodes are
+	 * linked, the weights of the links and the limit of paths
+	 */
+	public long getTopologyFingerprint() {
+		List<N> nodes = getNodes();
+		long hash = 0xcbf29ce484222325L;
+		hash = fingerprint(hash, PATHS_FORMAT_VERSION);
+		hash = fingerprint(hash, nodes.size());
+		hash = fingerprint(hash, pathsLimit);
+		for (int i = 0; i < nodes.size(); i++)
+			for (int j = i + 1; j < nodes.size(); j++) {
+				L link = getLink(nodes.get(i), nodes.get(j));
+				hash = fingerprint(hash, link == null ? -1 : getWeight(link));
+			}
+		return hash;
+	}
+
+	private static long fingerprint(long hash, long value) {
+		for (int i = 0; i < 8; i++) {
+			hash ^= (value >>> (i * 8)) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes the calculated paths of every pair of nodes as the indices of their nodes
+	 */
+	public void writePaths(DataOutput out) throws IOException {
+		if (nodes.size() > Character.MAX_VALUE + 1)
+			throw new IOException("too_many_nodes_to_write_paths");
+		Map<N, Integer> indices = new HashMap<>();
+		for (N node : nodes)
+			indices.put(node, indices.size());
+		out.writeInt(getNodesPairsCount());
+		for (Relation<N, L, P> relation : relations) {
+			out.writeInt(relation.paths.size());
+			for (Path<N> path : relation.paths) {
+				out.writeShort(path.size());
+				for (int i = 0; i < path.size(); i++)
+					out.writeShort(indices.get(path.get(i)));
+			}
+		}
+	}
+
+	/**
+	 * Reads the paths written by {@link #writePaths(DataOutput)} for the same topology, the paths are built again from
+	 * their nodes, the progress is reported once per pair
+	 */
+	public void readPaths(ByteBuffer in, Runnable progressUpdate) throws IOException {
+		List<N> nodes = getNodes();
+		if (in.getInt() != getNodesPairsCount())
+			throw new IOException("paths_do_not_match_the_topology");
+		for (Relation<N, L, P> relation : relations) {
+			relation.paths.clear();
+			int pathsCount = in.getInt();
+			for (int i = 0; i < pathsCount; i++) {
+				int nodesCount = in.getChar();
+				List<N> pathNodes = new ArrayList<>(nodesCount);
+				for (int j = 0; j < nodesCount; j++)
+					pathNodes.add(nodes.get(in.getChar()));
+				relation.paths.add(pathBuilder.getPath(pathNodes));
+			}
+			progressUpdate.run();
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package ca.bcit.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Yen's algorithm for the best loopless paths between two nodes, nodes are given by their indices. Paths are ranked by
+ * their number of links, then by their weight and then in the order a depth-first search visiting the neighbours by
+ * index would find them: at the first node where two paths differ, the one reaching the target there comes first,
+ * otherwise the one going to the lower index.
+ */
+final class KShortestPaths {
+
+	private final int[][] neighbours;
+	// weights of the links to the neighbours, in the same order
+	private final long[][] weights;
+
+	// scratch of a spur path search
+	private final boolean[] blocked;
+	private final int[] queue;
+	private final int[] hops;
+	private final long[] distance;
+	private int target;
+
+	/**
+	 * @param neighbours neighbours of every node, ordered by index, every link in both directions
+	 * @param weights weights of the links to the neighbours
+	 */
+	KShortestPaths(int[][] neighbours, long[][] weights) {
+		this.neighbours = neighbours;
+		this.weights = weights;
+		blocked = new boolean[neighbours.length];
+		queue = new int[neighbours.length];
+		hops = new int[neighbours.length];
+		distance = new long[neighbours.length];
+	}
+
+	/**
+	 * @return at most limit best paths from the source to the target, in their order
+	 */
+	List<int[]> find(int source, int target, int limit) {
+		this.target = target;
+		List<int[]> paths = new ArrayList<>();
+		PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+		Set<Candidate> known = new HashSet<>();
+		// found paths as a tree of their prefixes, the children of a prefix are the neighbours its paths continue to
+		Prefix found = new Prefix();
+
+		Arrays.fill(blocked, false);
+		int[] first = spurPath(source, new int[0], 0);
+		if (first == null)
+			return paths;
+		Candidate best = new Candidate(first, 0);
+		known.add(best);
+		while (true) {
+			int[] previous = best.nodes;
+			paths.add(previous);
+			found.add(previous);
+			if (paths.size() == limit)
+				break;
+
+			Prefix prefix = found;
+			Arrays.fill(blocked, false);
+			for (int i = 0; i < best.deviation; i++) {
+				blocked[previous[i]] = true;
+				prefix = prefix.child(previous[i + 1]);
+			}
+			for (int i = best.deviation; i < previous.length - 1; i++) {
+				int[] spur = spurPath(previous[i], prefix.children, prefix.childrenCount);
+				blocked[previous[i]] = true;
+				prefix = prefix.child(previous[i + 1]);
+				if (spur == null)
+					continue;
+				int[] nodes = Arrays.copyOf(previous, i + spur.length);
+				System.arraycopy(spur, 0, nodes, i, spur.length);
+				Candidate candidate = new Candidate(nodes, i);
+				if (known.add(candidate))
+					candidates.add(candidate);
+			}
+
+			if (candidates.isEmpty())
+				break;
+			best = candidates.poll();
+		}
+		return paths;
+	}
+
+	/**
+	 * Best path from the node to the target avoiding the blocked nodes and the links to the taken neighbours
+	 * @return nodes of the path starting with the node, null if there is none
+	 */
+	private int[] spurPath(int node, int[] taken, int takenCount) {
+		blocked[node] = true;
+		shortestDistances();
+		blocked[node] = false;
+
+		int next = -1;
+		for (int i = 0; i < neighbours[node].length; i++) {
+			int neighbour = neighbours[node][i];
+			if (blocked[neighbour] || hops[neighbour] == Integer.MAX_VALUE || contains(taken, takenCount, neighbour))
+				continue;
+			if (next == -1 || isBetter(1 + hops[neighbour], weights[node][i] + distance[neighbour], neighbour,
+					1 + hops[next], weightTo(node, next) + distance[next], next))
+				next = neighbour;
+		}
+		if (next == -1)
+			return null;
+
+		int[] path = new int[hops[next] + 2];
+		path[0] = node;
+		path[1] = next;
+		for (int k = 2; k < path.length; k++) {
+			int current = path[k - 1], chosen = -1;
+			for (int i = 0; i < neighbours[current].length; i++) {
+				int neighbour = neighbours[current][i];
+				if (!blocked[neighbour] && neighbour != node && hops[neighbour] == hops[current] - 1
+						&& distance[neighbour] + weights[current][i] == distance[current]
+						&& (chosen == -1 || neighbour == target))
+					chosen = neighbour;
+			}
+			path[k] = chosen;
+		}
+		return path;
+	}
+
+	/**
+	 * Numbers of links and weights of the best paths from every node to the target avoiding the blocked nodes.
+	 * The number of links ranks first, so a breadth-first search finds them: the weight of a node is final once all nodes
+	 * one link closer to the target are visited.
+	 */
+	private void shortestDistances() {
+		Arrays.fill(hops, Integer.MAX_VALUE);
+		hops[target] = 0;
+		distance[target] = 0;
+		queue[0] = target;
+		for (int head = 0, tail = 1; head < tail; head++) {
+			int current = queue[head];
+			for (int i = 0; i < neighbours[current].length; i++) {
+				int neighbour = neighbours[current][i];
+				if (blocked[neighbour])
+					continue;
+				long newDistance = distance[current] + weights[current][i];
+				if (hops[neighbour] == Integer.MAX_VALUE) {
+					hops[neighbour] = hops[current] + 1;
+					distance[neighbour] = newDistance;
+					queue[tail++] = neighbour;
+				}
+				else if (hops[neighbour] == hops[current] + 1 && newDistance < distance[neighbour])
+					distance[neighbour] = newDistance;
+			}
+		}
+	}
+
+	private boolean isBetter(int hops, long weight, int node, int otherHops, long otherWeight, int other) {
+		if (hops != otherHops)
+			return hops < otherHops;
+		if (weight != otherWeight)
+			return weight < otherWeight;
+		return node == target || other != target && node < other;
+	}
+
+	private long weightTo(int node, int neighbour) {
+		return weights[node][Arrays.binarySearch(neighbours[node], neighbour)];
+	}
+
+	private static boolean contains(int[] nodes, int count, int node) {
+		for (int i = 0; i < count; i++)
+			if (nodes[i] == node)
+				return true;
+		return false;
+	}
+
+	private static final class Prefix {
+		int[] children = new int[2];
+		Prefix[] childPrefixes = new Prefix[2];
+		int childrenCount;
+
+		Prefix child(int node) {
+			for (int i = 0; i < childrenCount; i++)
+				if (children[i] == node)
+					return childPrefixes[i];
+			if (childrenCount == children.length) {
+				children = Arrays.copyOf(children, childrenCount * 2);
+				childPrefixes = Arrays.copyOf(childPrefixes, childrenCount * 2);
+			}
+			children[childrenCount] = node;
+			childPrefixes[childrenCount] = new Prefix();
+			return childPrefixes[childrenCount++];
+		}
+
+		void add(int[] path) {
+			Prefix prefix = this;
+			for (int i = 1; i < path.length; i++)
+				prefix = prefix.child(path[i]);
+		}
+	}
+
+	private final class Candidate implements Comparable<Candidate> {
+		final int[] nodes;
+		// index of the node where the path leaves the path it was found from
+		final int deviation;
+		final long weight;
+
+		Candidate(int[] nodes, int deviation) {
+			this.nodes = nodes;
+			this.deviation = deviation;
+			long weight = 0;
+			for (int i = 1; i < nodes.length; i++)
+				weight += weightTo(nodes[i - 1], nodes[i]);
+			this.weight = weight;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			if (nodes.length != other.nodes.length)
+				return Integer.compare(nodes.length, other.nodes.length);
+			if (weight != other.weight)
+				return Long.compare(weight, other.weight);
+			for (int i = 0; i < nodes.length; i++)
+				if (nodes[i] != other.nodes[i])
+					return nodes[i] == target ? -1 : other.nodes[i] == target ? 1 : Integer.compare(nodes[i], other.nodes[i]);
+			return 0;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Candidate && Arrays.equals(nodes, ((Candidate) obj).nodes);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(nodes);
+		}
+	}
+}
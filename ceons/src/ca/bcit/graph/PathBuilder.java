@@ -2,14 +2,15 @@ package ca.bcit.graph;
 
 import ca.bcit.utils.collections.Identifiable;
 
+import java.util.List;
+
 public abstract class PathBuilder<N extends Identifiable, P extends Path<N>, G extends Graph<N, ?, P, G>> {
 	G graph;
 	
-	public abstract void init();
-	public abstract boolean contains(N node);
-	public abstract void addNode(N node);
-	public abstract void removeTail();
-	public abstract P getPath();
+	/**
+	 * Creates the path through the nodes, called concurrently while the paths are calculated
+	 */
+	public abstract P getPath(List<N> nodes);
 	protected G getGraph() {
 		return graph;
 	}
@@ -1,14 +1,13 @@
 package ca.bcit.graph;
 
-import ca.bcit.utils.collections.InsertionSortList;
-
+import java.util.ArrayList;
 import java.util.List;
 
 public class Relation<N, L, P extends Path<N>> {
 	public final N nodeA;
 	public final N nodeB;
 	L link;
-	final List<Path<N>> paths = new InsertionSortList<>();
+	final List<Path<N>> paths = new ArrayList<>();
 	
 	Relation(N nodeA, N nodeB) {
 		if (nodeA.equals(nodeB))
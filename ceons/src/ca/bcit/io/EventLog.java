@@ -0,0 +1,346 @@
+package ca.bcit.io;
+
+import ca.bcit.net.Modulation;
+import ca.bcit.net.Network;
+import ca.bcit.net.NetworkNode;
+import ca.bcit.net.PartedPath;
+import ca.bcit.net.PathPart;
+import ca.bcit.net.demand.Demand;
+import ca.bcit.net.demand.DemandAllocationResult;
+import ca.bcit.utils.IntegerRange;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log of everything that happens to the demands of a simulation. The simulation thread only copies the events into
+ * a lock-free ring buffer, a dedicated thread formats them and writes them into the file, so logging does not wait
+ * for I/O unless the buffer is full. If writing fails, the writer thread closes the file and the next logged event
+ * throws an {@link UncheckedIOException}.
+ * <p>
+ * Every event is a record of ints: length, type, step, demand number, volume and the data of the type. Demands are
+ * numbered in the order in which they are first logged. A path is written as its nodes count and node IDs followed by
+ * its parts count and links count, modulation, first slice and slices count of every part.
+ */
+public class EventLog implements Closeable {
+
+	public enum Type {
+		ALLOCATED, BLOCKED, RELEASED, LINK_CUT, BACKUP_CLAIMED, BACKUP_LOST, DROPPED, MOVED
+	}
+
+	public enum Format {
+		BINARY, CSV
+	}
+
+	private static final int MAGIC = 0x43454556;
+	private static final int VERSION = 2;
+	private static final int DEFAULT_CAPACITY = 1 << 20;
+	private static final long IDLE_WAIT_NANOS = 200_000;
+	private static final String CSV_HEADER = "step,event,demand,volume,detail,path,modulations,slices,regenerators,"
+			+ "backup_path,backup_modulations,backup_slices,backup_regenerators";
+
+	private final int[] ring;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private long position;
+	private long cachedTail;
+	private final Map<Demand, Integer> demandNumbers = new IdentityHashMap<>();
+	private int nextDemandNumber;
+
+	private final Format format;
+	private final String[] nodeNames;
+	private final OutputStream out;
+	private final Thread writer;
+	private volatile boolean closed;
+	private volatile IOException error;
+
+	public EventLog(File file, Format format, Network network) throws IOException {
+		this(file, format, network, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param file log file, replaced if it exists
+	 * @param network network of the simulation, its node names are written in the CSV format
+	 * @param capacity size of the ring buffer in ints, rounded up to a power of 2
+	 */
+	public EventLog(File file, Format format, Network network, int capacity) throws IOException {
+		ring = new int[Integer.highestOneBit(Math.max(capacity, 1024) - 1) << 1];
+		mask = ring.length - 1;
+		this.format = format;
+		nodeNames = new String[network.getNodes().size()];
+		for (NetworkNode node : network.getNodes())
+			nodeNames[node.getID()] = node.getName();
+
+		out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		try {
+			if (format == Format.BINARY) {
+				DataOutputStream header = new DataOutputStream(out);
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+			}
+			else
+				out.write((CSV_HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+		}
+		catch (IOException e) {
+			out.close();
+			throw e;
+		}
+
+		writer = new Thread(this::write, "event-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public void allocated(int step, Demand demand) {
+		begin(Type.ALLOCATED, step, demand, false);
+		putPath(demand.getWorkingPath());
+		putPath(demand.getBackupPath());
+		publish();
+	}
+
+	public void blocked(int step, Demand demand, DemandAllocationResult.Type type) {
+		begin(Type.BLOCKED, step, demand, true);
+		put(type.ordinal());
+		publish();
+	}
+
+	public void released(int step, Demand demand) {
+		begin(Type.RELEASED, step, demand, true);
+		publish();
+	}
+
+	public void linkCut(int step, NetworkNode nodeA, NetworkNode nodeB) {
+		begin(Type.LINK_CUT, step, null, false);
+		put(nodeA.getID());
+		put(nodeB.getID());
+		publish();
+	}
+
+	/**
+	 * Logs a demand whose working path failed and whose backup path became the working one
+	 */
+	public void backupClaimed(int step, Demand demand) {
+		begin(Type.BACKUP_CLAIMED, step, demand, false);
+		putPath(demand.getWorkingPath());
+		publish();
+	}
+
+	public void backupLost(int step, Demand demand) {
+		begin(Type.BACKUP_LOST, step, demand, false);
+		publish();
+	}
+
+	/**
+	 * Logs a demand whose working path was moved to other slices by the defragmentation
+	 */
+	public void moved(int step, Demand demand) {
+		begin(Type.MOVED, step, demand, false);
+		putPath(demand.getWorkingPath());
+		publish();
+	}
+
+	/**
+	 * Logs a demand that lost its working path and is not reallocated
+	 */
+	public void dropped(int step, Demand demand) {
+		begin(Type.DROPPED, step, demand, true);
+		publish();
+	}
+
+	/**
+	 * Waits until all logged events are written and closes the file
+	 * @throws IOException if writing any of the events failed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("event_log_was_not_closed");
+		}
+		if (error != null)
+			throw error;
+	}
+
+	// simulation thread
+
+	/**
+	 * Starts a record at the current position, its length is filled in by {@link #publish()}
+	 * @param last whether it is the last event of the demand, which then forgets its number
+	 */
+	private void begin(Type type, int step, Demand demand, boolean last) {
+		if (error != null)
+			throw new UncheckedIOException(error);
+		int number = -1;
+		if (demand != null) {
+			Integer known = last ? demandNumbers.remove(demand) : demandNumbers.get(demand);
+			if (known != null)
+				number = known;
+			else {
+				number = nextDemandNumber++;
+				if (!last)
+					demandNumbers.put(demand, number);
+			}
+		}
+		put(0);
+		put(type.ordinal());
+		put(step);
+		put(number);
+		put(demand == null ? 0 : demand.getVolume());
+	}
+
+	private void putPath(PartedPath path) {
+		if (path == null) {
+			put(0);
+			put(0);
+			return;
+		}
+		put(path.getPath().size());
+		path.forEachNode(node -> put(node.getID()));
+		put(path.getPartsCount());
+		for (PathPart part : path) {
+			IntegerRange range = part.getSlicesRange();
+			put(part.spectra.size());
+			put(part.getModulation().ordinal());
+			put(range == null ? -1 : range.getOffset());
+			put(range == null ? 0 : range.getLength());
+		}
+	}
+
+	private void put(int value) {
+		if (position - cachedTail == ring.length)
+			waitForSpace();
+		ring[(int) position & mask] = value;
+		position++;
+	}
+
+	private void waitForSpace() {
+		while (position - (cachedTail = tail.get()) == ring.length) {
+			if (error != null)
+				throw new UncheckedIOException(error);
+			Thread.yield();
+		}
+	}
+
+	private void publish() {
+		long start = head.get();
+		ring[(int) start & mask] = (int) (position - start);
+		head.lazySet(position);
+	}
+
+	// writer thread
+
+	private void write() {
+		StringBuilder line = new StringBuilder();
+		DataOutputStream binary = new DataOutputStream(out);
+		Writer text = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		int[] record = new int[64];
+		long read = 0;
+		try {
+			while (true) {
+				long available = head.get();
+				if (read == available) {
+					if (closed && read == head.get())
+						break;
+					text.flush();
+					LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+					continue;
+				}
+				while (read < available) {
+					int length = ring[(int) read & mask];
+					if (record.length < length)
+						record = new int[Integer.highestOneBit(length) << 1];
+					for (int i = 0; i < length; i++)
+						record[i] = ring[(int) (read + i) & mask];
+					read += length;
+					tail.lazySet(read);
+
+					if (format == Format.BINARY)
+						for (int i = 0; i < length; i++)
+							binary.writeInt(record[i]);
+					else {
+						line.setLength(0);
+						formatCsv(record, line);
+						text.append(line);
+					}
+				}
+			}
+			text.flush();
+		}
+		catch (IOException e) {
+			error = e;
+		}
+		finally {
+			try {
+				out.close();
+			}
+			catch (IOException e) {
+				if (error == null)
+					error = e;
+			}
+		}
+	}
+
+	private void formatCsv(int[] record, StringBuilder line) {
+		Type type = Type.values()[record[1]];
+		line.append(record[2]).append(',').append(type).append(',');
+		if (record[3] != -1)
+			line.append(record[3]);
+		line.append(',').append(record[4]).append(',');
+		int index = 5;
+		switch (type) {
+		case ALLOCATED:
+			line.append(',');
+			index = formatCsvPath(record, index, line);
+			line.append(',');
+			formatCsvPath(record, index, line);
+			break;
+		case BACKUP_CLAIMED:
+		case MOVED:
+			line.append(',');
+			formatCsvPath(record, index, line);
+			line.append(",,,,");
+			break;
+		case BLOCKED:
+			line.append(DemandAllocationResult.Type.values()[record[index]]).append(",,,,,,,,");
+			break;
+		case LINK_CUT:
+			line.append(nodeNames[record[index]]).append('-').append(nodeNames[record[index + 1]]).append(",,,,,,,,");
+			break;
+		default:
+			line.append(",,,,,,,,");
+		}
+		line.append('\n');
+	}
+
+	/**
+	 * Appends the path, modulations, slices and regenerators columns of a path
+	 * @return index of the first int after the path
+	 */
+	private int formatCsvPath(int[] record, int index, StringBuilder line) {
+		int nodesCount = record[index++];
+		for (int i = 0; i < nodesCount; i++)
+			line.append(i == 0 ? "" : "-").append(nodeNames[record[index++]]);
+		int partsCount = record[index++];
+		StringBuilder slices = new StringBuilder();
+		line.append(',');
+		for (int i = 0; i < partsCount; i++) {
+			index++;
+			line.append(i == 0 ? "" : ";").append(Modulation.values()[record[index++]]);
+			slices.append(i == 0 ? "" : ";").append(record[index++]).append('+').append(record[index++]);
+		}
+		line.append(',').append(slices).append(',');
+		if (partsCount > 0)
+			line.append(partsCount - 1);
+		return index;
+	}
+}
@@ -2,6 +2,7 @@ package ca.bcit.io;
 
 import ca.bcit.jfx.components.Console;
 
+import java.io.PrintStream;
 import java.util.Arrays;
 
 public class Logger {
@@ -16,18 +17,34 @@ public class Logger {
 	}
 
 	private static LoggerLevel loggerLevel = LoggerLevel.DEBUG;
+	private static PrintStream output;
+
+	/**
+	 * Redirects all messages to the given stream instead of the GUI console, used when running without a display
+	 * @param output stream for the messages
+	 */
+	public static void setOutput(PrintStream output) {
+		Logger.output = output;
+	}
+
+	private static void print(String message) {
+		if (output != null)
+			output.print(message);
+		else
+			Console.cout.appendText(message);
+	}
 
 	public static void debug(String message) {
 		if (loggerLevel == LoggerLevel.DEBUG)
-			Console.cout.appendText(message + '\n');
+			print(message + '\n');
 	}
 
 	public static void debug(Exception e) {
-		Console.cout.appendText(e.getLocalizedMessage() + '\n');
-		Console.cout.appendText(Arrays.toString(e.getStackTrace()) + '\n');
+		print(e.getLocalizedMessage() + '\n');
+		print(Arrays.toString(e.getStackTrace()) + '\n');
 	}
 
 	public static void info(String message) {
-		Console.cout.appendText(message + '\n');
+		print(message + '\n');
 	}
-}
\ No newline at end of file
+}
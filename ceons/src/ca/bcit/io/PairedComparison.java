@@ -0,0 +1,160 @@
+package ca.bcit.io;
+
+import ca.bcit.utils.ConfidenceInterval;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Differences of the total blocked volume percentage between algorithms and a baseline algorithm, paired by seed.
+ * Simulations of the common random numbers mode with the same seed see the same demands and failures, so the
+ * differences vary much less than the percentages themselves and fewer seeds are needed to tell algorithms apart.
+ */
+public class PairedComparison {
+
+    /**
+     * Mean difference of an algorithm from the baseline at one point of the sweep
+     */
+    public static class Difference {
+        private final String algorithm;
+        private final String baselineAlgorithm;
+        private final String trafficGeneratorName;
+        private final int erlangValue;
+        private final double alphaValue;
+        private final int pairsCount;
+        private final double blockedVolumePercentageDifference;
+        private final Double blockedVolumePercentageDifferenceHalfWidth;
+
+        Difference(String algorithm, String baselineAlgorithm, SimulationSummary point, double[] differences) {
+            this.algorithm = algorithm;
+            this.baselineAlgorithm = baselineAlgorithm;
+            this.trafficGeneratorName = point.getTrafficGeneratorName();
+            this.erlangValue = point.getErlangValue();
+            this.alphaValue = point.getAlphaValue();
+            this.pairsCount = differences.length;
+            if (differences.length < 2) {
+                this.blockedVolumePercentageDifference = differences[0];
+                this.blockedVolumePercentageDifferenceHalfWidth = null;
+            }
+            else {
+                ConfidenceInterval interval = ConfidenceInterval.of(differences);
+                this.blockedVolumePercentageDifference = interval.getMean();
+                this.blockedVolumePercentageDifferenceHalfWidth = interval.getHalfWidth();
+            }
+        }
+
+        public String getAlgorithm() {
+            return algorithm;
+        }
+
+        public String getBaselineAlgorithm() {
+            return baselineAlgorithm;
+        }
+
+        public int getErlangValue() {
+            return erlangValue;
+        }
+
+        public int getPairsCount() {
+            return pairsCount;
+        }
+
+        /**
+         * @return mean of the algorithm's percentage minus the baseline's, in percentage points
+         */
+        public double getBlockedVolumePercentageDifference() {
+            return blockedVolumePercentageDifference;
+        }
+
+        /**
+         * @return half-width of the 95% confidence interval of the difference, null for a single pair
+         */
+        public Double getBlockedVolumePercentageDifferenceHalfWidth() {
+            return blockedVolumePercentageDifferenceHalfWidth;
+        }
+
+        /**
+         * @return whether the confidence interval of the difference excludes 0
+         */
+        public boolean isSignificant() {
+            return blockedVolumePercentageDifferenceHalfWidth != null
+                    && Math.abs(blockedVolumePercentageDifference) > blockedVolumePercentageDifferenceHalfWidth;
+        }
+    }
+
+    private final List<Difference> differences;
+
+    private PairedComparison(List<Difference> differences) {
+        this.differences = differences;
+    }
+
+    /**
+     * Pairs every summary with the summary of the baseline algorithm of the same generator, erlang, alpha, demands
+     * count and seed. Summaries without a baseline counterpart are left out.
+     *
+     * @param summaries         summaries of the sweep
+     * @param baselineAlgorithm name of the algorithm the others are compared to
+     * @throws IllegalArgumentException when paired simulations drew different demands or failures
+     */
+    public static PairedComparison of(List<SimulationSummary> summaries, String baselineAlgorithm) {
+        Map<String, Map<Long, SimulationSummary>> baselines = new HashMap<>();
+        Map<String, Map<String, List<SimulationSummary>>> points = new LinkedHashMap<>();
+        for (SimulationSummary summary : summaries) {
+            String point = summary.getTrafficGeneratorName() + "/" + summary.getErlangValue() + "/" + summary.getAlphaValue()
+                    + "/" + summary.getDemandsCountValue();
+            if (summary.getAlgorithm().equals(baselineAlgorithm))
+                baselines.computeIfAbsent(point, key -> new HashMap<>()).put(summary.getSeedValue(), summary);
+            else
+                points.computeIfAbsent(summary.getAlgorithm(), key -> new LinkedHashMap<>())
+                        .computeIfAbsent(point, key -> new ArrayList<>()).add(summary);
+        }
+
+        List<Difference> differences = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<SimulationSummary>>> algorithm : points.entrySet())
+            for (Map.Entry<String, List<SimulationSummary>> point : algorithm.getValue().entrySet()) {
+                Map<Long, SimulationSummary> pointBaselines = baselines.getOrDefault(point.getKey(), Collections.emptyMap());
+                double[] values = new double[point.getValue().size()];
+                int count = 0;
+                for (SimulationSummary summary : point.getValue()) {
+                    SimulationSummary baseline = pointBaselines.get(summary.getSeedValue());
+                    if (baseline == null)
+                        continue;
+                    if (!Objects.equals(summary.getRandomStreamsChecksum(), baseline.getRandomStreamsChecksum()))
+                        throw new IllegalArgumentException("paired_simulations_drew_different_random_numbers");
+                    values[count++] = summary.getTotalBlockedVolumePercentage() - baseline.getTotalBlockedVolumePercentage();
+                }
+                if (count > 0)
+                    differences.add(new Difference(algorithm.getKey(), baselineAlgorithm, point.getValue().get(0),
+                            Arrays.copyOf(values, count)));
+            }
+        return new PairedComparison(differences);
+    }
+
+    public List<Difference> getDifferences() {
+        return differences;
+    }
+
+    /**
+     * Writes the differences as JSON into a new file in the given directory, named like the summaries with a
+     * "_comparison" suffix.
+     *
+     * @return name of the created file
+     */
+    public String save(File directory, String projectName) throws IOException {
+        if (!directory.isDirectory())
+            directory.mkdirs();
+        String prefix = projectName.toUpperCase() + new SimpleDateFormat("_yyyy_MM_dd_HH_mm_ss").format(new Date()) + "_comparison";
+        File file = new File(directory, prefix + ".json");
+        for (int i = 1; !file.createNewFile(); i++)
+            file = new File(directory, prefix + "_" + i + ".json");
+
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(new GsonBuilder().setPrettyPrinting().create().toJson(this));
+        }
+        return file.getName();
+    }
+}
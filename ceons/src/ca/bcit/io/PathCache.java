@@ -0,0 +1,108 @@
+package ca.bcit.io;
+
+import ca.bcit.graph.Graph;
+import ca.bcit.utils.LocaleUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Calculated paths of a project kept in a file next to it, so they are calculated only once for a topology.
+ * The file holds the fingerprint of the topology the paths were calculated for, a changed topology or limit of paths
+ * does not match it and the paths are calculated again and written over the old ones.
+ */
+public final class PathCache {
+
+	private static final int MAGIC = 0x43455041; // CEPA
+	private static final int VERSION = 2;
+	// magic, version, fingerprint, paths count of every pair and length of the paths
+	private static final int HEADER_LENGTH = 28;
+
+	private PathCache() {}
+
+	/**
+	 * @return file keeping the paths of the project
+	 */
+	public static File getFile(File projectFile) {
+		return new File(projectFile.getPath() + ".paths");
+	}
+
+	/**
+	 * Reads the paths of the graph from the file of the project if they were calculated for the same topology,
+	 * otherwise calculates them and writes them into the file. A file that cannot be read or written is only logged.
+	 * @param progressUpdate called once per pair of nodes
+	 * @return number of paths every pair of nodes has
+	 */
+	public static int calculatePaths(Graph<?, ?, ?, ?> graph, File projectFile, Runnable progressUpdate) {
+		File file = getFile(projectFile);
+		long fingerprint = graph.getTopologyFingerprint();
+		if (file.isFile())
+			try {
+				int maxPathsCount = read(graph, file, fingerprint, progressUpdate);
+				if (maxPathsCount >= 0) {
+					Logger.debug(LocaleUtils.translate("paths_loaded_from") + " " + file);
+					return maxPathsCount;
+				}
+			}
+			catch (IOException | RuntimeException e) {
+				Logger.info(LocaleUtils.translate("paths_could_not_be_read") + " " + e.getMessage());
+			}
+
+		int maxPathsCount = graph.calculatePaths(progressUpdate);
+		try {
+			write(graph, file, fingerprint, maxPathsCount);
+		}
+		catch (IOException e) {
+			Logger.info(LocaleUtils.translate("paths_could_not_be_written") + " " + e.getMessage());
+		}
+		return maxPathsCount;
+	}
+
+	/**
+	 * The header is read and checked first, the paths are mapped only if they belong to the topology and are complete,
+	 * so a file that is going to be replaced is not mapped, which would prevent replacing it on some systems
+	 * @return number of paths every pair of nodes has, -1 if the paths were calculated for another topology
+	 */
+	private static int read(Graph<?, ?, ?, ?> graph, File file, long fingerprint, Runnable progressUpdate) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			while (header.hasRemaining())
+				if (channel.read(header) == -1)
+					return -1;
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != fingerprint)
+				return -1;
+			int maxPathsCount = header.getInt();
+			if (header.getLong() != channel.size() - HEADER_LENGTH)
+				return -1;
+			graph.readPaths(channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, channel.size() - HEADER_LENGTH), progressUpdate);
+			return maxPathsCount;
+		}
+	}
+
+	/**
+	 * Writes into a temporary file first, so an interrupted write does not leave a damaged file
+	 */
+	private static void write(Graph<?, ?, ?, ?> graph, File file, long fingerprint, int maxPathsCount) throws IOException {
+		ByteArrayOutputStream paths = new ByteArrayOutputStream();
+		graph.writePaths(new DataOutputStream(paths));
+		File temporary = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			out.writeInt(maxPathsCount);
+			out.writeLong(paths.size());
+			paths.writeTo(out);
+		}
+		catch (IOException e) {
+			temporary.delete();
+			throw e;
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+}
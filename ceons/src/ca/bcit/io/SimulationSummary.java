@@ -1,5 +1,15 @@
 package ca.bcit.io;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
 public class SimulationSummary {
     private String trafficGeneratorName;
     private int erlangValue;
@@ -20,6 +30,21 @@ public class SimulationSummary {
     private double totalBlockedVolumePercentage;
     private double averageRegeneratiorsPerAllocation;
     private String algorithm;
+    private int simulatedDemandsCount;
+    private Integer warmUpDemandsCount;
+    private Double blockedVolumePercentageMean;
+    private Double blockedVolumePercentageHalfWidth;
+    private Boolean converged;
+    private String randomStreamsChecksum;
+    private Double meanExternalFragmentation;
+    private Double meanEntropyFragmentation;
+    private Integer defragmentationsCount;
+    private Integer movedLightpathsCount;
+    private Double defragmentationMillis;
+    private Double defragmentationFragmentationReduction;
+    private Double defragmentationRecoveredVolumePercentage;
+    private String workingSpectrumAssignment;
+    private String backupSpectrumAssignment;
 
     public SimulationSummary(String trafficGeneratorName, int erlangValue, long seedValue, double alphaValue, int demandsCountValue,
                              double totalVolume, double spectrumBlockedVolume, double regeneratorsBlockedVolume, double linkFailureBlockedVolume,
@@ -47,4 +72,170 @@ public class SimulationSummary {
                                         + (unhandledVolume / totalVolume)) * 100;
         averageRegeneratiorsPerAllocation = regsPerAllocation / allocations;
     }
-}
\ No newline at end of file
+
+    public String getTrafficGeneratorName() {
+        return trafficGeneratorName;
+    }
+
+    public int getErlangValue() {
+        return erlangValue;
+    }
+
+    public long getSeedValue() {
+        return seedValue;
+    }
+
+    public double getAlphaValue() {
+        return alphaValue;
+    }
+
+    public int getDemandsCountValue() {
+        return demandsCountValue;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public double getTotalBlockedVolumePercentage() {
+        return totalBlockedVolumePercentage;
+    }
+
+    public int getSimulatedDemandsCount() {
+        return simulatedDemandsCount;
+    }
+
+    /**
+     * @param simulatedDemandsCount number of demands generated before the simulation stopped
+     */
+    public void setSimulatedDemandsCount(int simulatedDemandsCount) {
+        this.simulatedDemandsCount = simulatedDemandsCount;
+    }
+
+    /**
+     * Records the batch means estimate of the blocked volume percentage, only set when the stopping rule is used.
+     *
+     * @param warmUpDemandsCount number of demands of the warm-up period left out of the estimate
+     * @param mean               steady state blocked volume percentage
+     * @param halfWidth          half-width of its 95% confidence interval
+     * @param converged          whether the simulation stopped because the interval was narrow enough
+     */
+    public void setBlockedVolumeConfidenceInterval(int warmUpDemandsCount, double mean, double halfWidth, boolean converged) {
+        this.warmUpDemandsCount = warmUpDemandsCount;
+        this.blockedVolumePercentageMean = mean;
+        this.blockedVolumePercentageHalfWidth = halfWidth;
+        this.converged = converged;
+    }
+
+    public Double getBlockedVolumePercentageMean() {
+        return blockedVolumePercentageMean;
+    }
+
+    public Double getBlockedVolumePercentageHalfWidth() {
+        return blockedVolumePercentageHalfWidth;
+    }
+
+    public String getRandomStreamsChecksum() {
+        return randomStreamsChecksum;
+    }
+
+    /**
+     * @param randomStreamsChecksum checksum of the demands and link failures drawn in the common random numbers mode,
+     *                              equal for simulations that drew the same ones
+     */
+    public void setRandomStreamsChecksum(String randomStreamsChecksum) {
+        this.randomStreamsChecksum = randomStreamsChecksum;
+    }
+
+    public Double getMeanExternalFragmentation() {
+        return meanExternalFragmentation;
+    }
+
+    public Double getMeanEntropyFragmentation() {
+        return meanEntropyFragmentation;
+    }
+
+    /**
+     * Records the fragmentation of the link spectra averaged over the links and the steps of the simulation.
+     *
+     * @param external mean external fragmentation, 1 - largest free block / free slices
+     * @param entropy  mean Shannon entropy of the free blocks
+     */
+    public void setFragmentation(double external, double entropy) {
+        this.meanExternalFragmentation = external;
+        this.meanEntropyFragmentation = entropy;
+    }
+
+    public Integer getDefragmentationsCount() {
+        return defragmentationsCount;
+    }
+
+    public Integer getMovedLightpathsCount() {
+        return movedLightpathsCount;
+    }
+
+    public Double getDefragmentationRecoveredVolumePercentage() {
+        return defragmentationRecoveredVolumePercentage;
+    }
+
+    /**
+     * Records the cost and the effect of the defragmentation, only set when it is enabled.
+     *
+     * @param runsCount              number of defragmentation runs
+     * @param movesCount             number of moved lightpaths
+     * @param millis                 time spent computing and applying the moves
+     * @param fragmentationReduction sum of the decreases of the mean external fragmentation by the runs
+     * @param recoveredVolume        volume allocated only after the defragmentation on block
+     */
+    public void setDefragmentation(int runsCount, int movesCount, double millis, double fragmentationReduction, double recoveredVolume) {
+        this.defragmentationsCount = runsCount;
+        this.movedLightpathsCount = movesCount;
+        this.defragmentationMillis = millis;
+        this.defragmentationFragmentationReduction = fragmentationReduction;
+        this.defragmentationRecoveredVolumePercentage = recoveredVolume / totalVolume * 100;
+    }
+
+    public String getWorkingSpectrumAssignment() {
+        return workingSpectrumAssignment;
+    }
+
+    public String getBackupSpectrumAssignment() {
+        return backupSpectrumAssignment;
+    }
+
+    /**
+     * @param working name of the policy that placed the segments of working paths
+     * @param backup  name of the policy that placed the segments of backup paths
+     */
+    public void setSpectrumAssignment(String working, String backup) {
+        this.workingSpectrumAssignment = working;
+        this.backupSpectrumAssignment = backup;
+    }
+
+    public void write(Writer writer) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        writer.write(gson.toJson(this));
+    }
+
+    /**
+     * Writes the summary as JSON into a new file in the given directory. The file name starts with the project
+     * name and the current date; a counter is appended when several runs finish within the same second.
+     *
+     * @param directory   directory for the results, created if missing
+     * @param projectName name of the simulated project
+     * @return name of the created file
+     */
+    public String save(File directory, String projectName) throws IOException {
+        if (!directory.isDirectory())
+            directory.mkdirs();
+        String prefix = projectName.toUpperCase() + new SimpleDateFormat("_yyyy_MM_dd_HH_mm_ss").format(new Date());
+        File file = new File(directory, prefix + ".json");
+        for (int i = 1; !file.createNewFile(); i++)
+            file = new File(directory, prefix + "_" + i + ".json");
+
+        try (FileWriter resultsDataWriter = new FileWriter(file)) {
+            write(resultsDataWriter);
+        }
+        return file.getName();
+    }
+}
@@ -6,6 +6,7 @@ import ca.bcit.io.create.SavedNodeLinks;
 import ca.bcit.io.create.SavedNodeTypes;
 import ca.bcit.net.Modulation;
 import ca.bcit.net.ModulationInIfStatement;
+import ca.bcit.net.ModulationProfile;
 import ca.bcit.net.Network;
 import ca.bcit.net.demand.generator.TrafficGenerator;
 import ca.bcit.utils.LocaleUtils;
@@ -47,11 +48,14 @@ public class EONProjectFileFormat extends ProjectFileFormat<Void, Void> {
 		map = ImageIO.read(in);
 
 		YamlConfiguration modulations = new YamlConfiguration(zip.getInputStream(zip.getEntry(projectConfig.get("modulations"))));
+		int[][] distances = new int[Modulation.values().length][ModulationProfile.VOLUME_LEVELS_COUNT];
+		int[][] slicesConsumptions = new int[Modulation.values().length][ModulationProfile.VOLUME_LEVELS_COUNT];
 		for (Modulation modulation : Modulation.values())
-			for (int i = 0; i < 40; i++) {
-				modulation.modulationDistances[i] = modulations.get(modulation + ".distances." + i);
-				modulation.slicesConsumption[i] = modulations.get(modulation + ".consumptions." + i);
+			for (int i = 0; i < ModulationProfile.VOLUME_LEVELS_COUNT; i++) {
+				distances[modulation.ordinal()][i] = modulations.get(modulation + ".distances." + i);
+				slicesConsumptions[modulation.ordinal()][i] = modulations.get(modulation + ".consumptions." + i);
 			}
+		network.setModulationProfile(new ModulationProfile(distances, slicesConsumptions));
 
 		List<TrafficGenerator> trafficGenerators = new ArrayList<>();
 		for (String generatorFileName : (List<String>) projectConfig.get("generators"))
@@ -2,10 +2,12 @@ package ca.bcit.jfx.components;
 
 import ca.bcit.ApplicationResources;
 import ca.bcit.io.Logger;
+import ca.bcit.io.SimulationSummary;
 import ca.bcit.jfx.controllers.SimulationMenuController;
-import ca.bcit.net.Network;
+import ca.bcit.jfx.tasks.SimulationUIListener;
 import ca.bcit.net.Simulation;
-import ca.bcit.net.algo.IRMSAAlgorithm;
+import ca.bcit.net.SimulationListener;
+import ca.bcit.net.SweepExecutor;
 import ca.bcit.utils.LocaleUtils;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -41,8 +43,8 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TaskReadyProgressBar extends StackPane {
     private static ArrayList<String> resultsDataFileNameList = new ArrayList<String>();
@@ -57,7 +59,7 @@ public class TaskReadyProgressBar extends StackPane {
 
     private final ProgressBar bar = new ProgressBar(0);
     private final Label label = new Label("");
-    private ExecutorService runMultipleSimulationService;
+    private SweepExecutor sweepExecutor;
     private int numSimulationsLeft = 0;
     private Thread thread;
 
@@ -148,30 +150,41 @@ public class TaskReadyProgressBar extends StackPane {
         thread.start();
     }
 
-    public void runTasks(ArrayList<IRMSAAlgorithm> algorithms, ArrayList<ArrayList> tasks, boolean daemon, ExecutorService runMultipleSimulationService, SimulationMenuController controller, Network network) {
-        setRunMultipleSimulationService(runMultipleSimulationService);
+    public void runTasks(SweepExecutor sweepExecutor, List<SweepExecutor.Run> runs, boolean daemon, SimulationMenuController controller) {
+        setSweepExecutor(sweepExecutor);
         controller.setRunning(true);
         Task task = new Task() {
             @Override
             protected Object call() throws Exception {
                 try {
-                    this.updateProgress(0, tasks.size() * algorithms.size());
-                    int count = 0;
-                    for (IRMSAAlgorithm algorithm : algorithms) {
-                        network.setDemandAllocationAlgorithm(algorithm);
-                        for (ArrayList task : tasks) {
-                            if (this.isCancelled())
-                                break;
-                            Logger.info("\n");
-                            Logger.info(LocaleUtils.translate("starting_simulation") + "! " + "\n\t" + LocaleUtils.translate("simulation_parameter_seed") + ": " + task.get(1) + "\n\t" + LocaleUtils.translate("simulation_parameter_alpha") + ": " + task.get(2) + "\n\t" + LocaleUtils.translate("simulation_parameter_erlang") + ": " + task.get(3) +
-                                    "\n\t" + LocaleUtils.translate("simulation_parameter_number_of_requests") + ": " + task.get(4) + "\n\t" + LocaleUtils.translate("simulation_parameter_replica_preservation") + ": " + task.get(5));
-                            ((Simulation) task.get(0)).simulate((int) task.get(1), (int) task.get(4), (double) task.get(2), (int) task.get(3), (boolean) task.get(5));
-                            Logger.info(LocaleUtils.translate("simulation_finished") + "!");
-                            this.updateProgress(++count, tasks.size()*algorithms.size());
-                            if (this.isCancelled())
-                                break;
+                    this.updateProgress(0, runs.size());
+                    SimulationMenuController.finished = false;
+                    SimulationMenuController.cancelled = false;
+                    AtomicInteger count = new AtomicInteger();
+                    sweepExecutor.addListener(new SimulationUIListener(true));
+                    sweepExecutor.addListener(new SimulationListener() {
+                        @Override
+                        public void simulationStarted(Simulation simulation) {
+                            Logger.info(LocaleUtils.translate("starting_simulation") + "! " + simulation.getNetwork().getDemandAllocationAlgorithm().getName());
                         }
-                    }
+
+                        @Override
+                        public void simulationFinished(Simulation simulation, SimulationSummary summary) {
+                            Logger.info(LocaleUtils.translate("simulation_finished") + "! " + LocaleUtils.translate("simulation_parameter_seed") + ": " + summary.getSeedValue() +
+                                    ", " + LocaleUtils.translate("simulation_parameter_erlang") + ": " + summary.getErlangValue());
+                            updateProgress(count.incrementAndGet(), runs.size());
+                        }
+                    });
+                    List<SimulationSummary> summaries = sweepExecutor.execute(runs);
+                    SimulationMenuController.finished = true;
+                    if (sweepExecutor.isCancelled())
+                        return null;
+
+                    // results are written in the order of the runs, the report expects them sorted that way
+                    String projectName = ApplicationResources.getProject().getName();
+                    File resultsDirectory = new File(Simulation.RESULTS_DATA_DIR_NAME, projectName.toUpperCase());
+                    for (SimulationSummary summary : summaries)
+                        addResultsDataFileName(summary.save(resultsDirectory, projectName));
                 }
                 catch (Throwable e) {
                     e.printStackTrace();
@@ -190,14 +203,6 @@ public class TaskReadyProgressBar extends StackPane {
                     LocaleUtils.translate("refer_to_docs") + " https://www.overleaf.com/read/fhttvdyjcngb.\n\n\n" +
                     LocaleUtils.translate("thank_you") + "\n\n" +
                     LocaleUtils.translate("ceons_team"));
-            runMultipleSimulationService.shutdown();
-            try {
-                if (!runMultipleSimulationService.awaitTermination(2500, TimeUnit.MILLISECONDS)) {
-                    runMultipleSimulationService.shutdownNow();
-                }
-            } catch (InterruptedException ex) {
-                runMultipleSimulationService.shutdownNow();
-            }
         });
         task.setOnFailed(e -> {
             controller.setRunning(false);
@@ -221,7 +226,7 @@ public class TaskReadyProgressBar extends StackPane {
         });
         thread = new Thread(task);
         thread.setDaemon(daemon);
-        runMultipleSimulationService.execute(thread);
+        thread.start();
     }
 
     public void initializePDFGen() {
@@ -341,12 +346,12 @@ public class TaskReadyProgressBar extends StackPane {
         return chart;
     }
 
-    private void setRunMultipleSimulationService(ExecutorService runMultipleSimulationService) {
-        this.runMultipleSimulationService = runMultipleSimulationService;
+    private void setSweepExecutor(SweepExecutor sweepExecutor) {
+        this.sweepExecutor = sweepExecutor;
     }
 
-    public ExecutorService getRunMultipleSimulationService() {
-        return runMultipleSimulationService;
+    public SweepExecutor getSweepExecutor() {
+        return sweepExecutor;
     }
 
     public void increaseSimulationCount() {
@@ -10,6 +10,7 @@ import ca.bcit.drawing.Node;
 import ca.bcit.i18n.LocaleEnum;
 import ca.bcit.io.Logger;
 import ca.bcit.io.MapLoadingException;
+import ca.bcit.io.PathCache;
 import ca.bcit.io.project.Project;
 import ca.bcit.io.project.ProjectFileFormat;
 import ca.bcit.jfx.DrawingState;
@@ -20,17 +21,11 @@ import ca.bcit.jfx.components.TaskReadyProgressBar;
 import ca.bcit.net.Network;
 import ca.bcit.net.NetworkLink;
 import ca.bcit.net.NetworkNode;
+import ca.bcit.net.NetworkSnapshot;
 import ca.bcit.net.algo.IRMSAAlgorithm;
-import ca.bcit.net.demand.generator.AnycastDemandGenerator;
-import ca.bcit.net.demand.generator.DemandGenerator;
 import ca.bcit.net.demand.generator.TrafficGenerator;
-import ca.bcit.net.demand.generator.UnicastDemandGenerator;
-import ca.bcit.net.spectrum.Spectrum;
 import ca.bcit.utils.LocaleUtils;
 import ca.bcit.utils.Utils;
-import ca.bcit.utils.random.ConstantRandomVariable;
-import ca.bcit.utils.random.MappedRandomVariable;
-import ca.bcit.utils.random.UniformRandomVariable;
 import com.sun.javafx.collections.ObservableListWrapper;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
@@ -127,6 +122,7 @@ public class MainWindowController implements Initializable {
     public Image mapImage;
 
     private static Timeline updateTimeline;
+    private static long drawnSnapshotVersion;
     private static ScheduledExecutorService executorService;
 
     public ResizableCanvas getCanvas() {
@@ -437,25 +433,30 @@ public class MainWindowController implements Initializable {
     }
 
     public void updateGraph() {
+        drawnSnapshotVersion = -1;
         updateTimeline = new Timeline(
                 new KeyFrame(
                         Duration.millis(200),
                         event -> {
                             try {
-                                graph.resetCanvas();
                                 Project project = ApplicationResources.getProject();
-                                for (NetworkNode n : project.getNetwork().getNodes()) {
-                                    n.updateRegeneratorCount();
+                                // the simulation thread publishes the occupancy, nothing is redrawn while it is paused
+                                NetworkSnapshot snapshot = project.getNetwork().getSnapshot();
+                                if (snapshot.getVersion() == drawnSnapshotVersion)
+                                    return;
+                                drawnSnapshotVersion = snapshot.getVersion();
+                                graph.resetCanvas();
+                                Network network = project.getNetwork();
+                                for (NetworkNode n : network.getNodes()) {
+                                    n.updateRegeneratorCount(snapshot.getFreeRegenerators(n));
                                     graph.addNetworkNode(n);
-                                    for (NetworkNode n2 : project.getNetwork().getNodes())
-                                        if (project.getNetwork().containsLink(n, n2)) {
-                                            NetworkLink networkLink = project.getNetwork().getLink(n, n2);
-                                            Spectrum linkSpectrum = project.getNetwork().getLinkSlices(n, n2);
-                                            int totalSlices = linkSpectrum.getSlicesCount();
-                                            int occupiedSlices = linkSpectrum.getOccupiedSlices();
-                                            int currentPercentage = (totalSlices - occupiedSlices) * 100 / totalSlices;
-                                            graph.addLink(n.getPosition(), n2.getPosition(), currentPercentage, networkLink.getLength());
-                                        }
+                                    for (int i = 0; i < network.getNeighboursCount(n); i++) {
+                                        NetworkNode n2 = network.getNeighbour(n, i);
+                                        int totalSlices = NetworkLink.NUMBER_OF_SLICES;
+                                        int occupiedSlices = snapshot.getOccupiedSlices(n, n2);
+                                        int currentPercentage = (totalSlices - occupiedSlices) * 100 / totalSlices;
+                                        graph.addLink(n.getPosition(), n2.getPosition(), currentPercentage, network.getNeighbourLink(n, i).getLength());
+                                    }
                                 }
 
                             } catch (Exception ex) {
@@ -477,14 +478,11 @@ public class MainWindowController implements Initializable {
             Project project = ApplicationResources.getProject();
             graph.resetCanvas();
 
-            for (NetworkNode n : project.getNetwork().getNodes()) {
-                n.clearOccupied();
+            Network network = project.getNetwork();
+            for (NetworkNode n : network.getNodes()) {
                 graph.addNetworkNode(n);
-                for (NetworkNode n2 : ApplicationResources.getProject().getNetwork().getNodes()){
-                    NetworkLink networkLink = project.getNetwork().getLink(n, n2);
-                    if (project.getNetwork().containsLink(n, n2))
-                        graph.addLink(n.getPosition(), n2.getPosition(), 100, networkLink.getLength());
-                }
+                for (int i = 0; i < network.getNeighboursCount(n); i++)
+                    graph.addLink(n.getPosition(), network.getNeighbour(n, i).getPosition(), 100, network.getNeighbourLink(n, i).getLength());
             }
             graph.list.redraw();
         }
@@ -533,14 +531,12 @@ public class MainWindowController implements Initializable {
             map.getGraphicsContext2D().drawImage(mapImage, 0, 0, map.getWidth(), map.getHeight());
             graph.resetCanvas();
 
-            for (NetworkNode n : project.getNetwork().getNodes()) {
+            Network network = project.getNetwork();
+            for (NetworkNode n : network.getNodes()) {
                 n.setFigure();
                 graph.addNetworkNode(n);
-                for (NetworkNode n2 : project.getNetwork().getNodes()) {
-                    NetworkLink networkLink = project.getNetwork().getLink(n, n2);
-                    if (project.getNetwork().containsLink(n, n2))
-                        graph.addLink(n.getPosition(), n2.getPosition(), 100, networkLink.getLength());
-                }
+                for (int i = 0; i < network.getNeighboursCount(n); i++)
+                    graph.addLink(n.getPosition(), network.getNeighbour(n, i).getPosition(), 100, network.getNeighbourLink(n, i).getLength());
             }
             updateTopologyButton.setDisable(false);
         }
@@ -559,7 +555,7 @@ public class MainWindowController implements Initializable {
 
             i = 1;
             try {
-                network.setMaxPathsCount(network.calculatePaths(() -> updateProgress(i++, network.getNodesPairsCount())));
+                network.setMaxPathsCount(PathCache.calculatePaths(network, file, () -> updateProgress(i++, network.getNodesPairsCount())));
             }
             catch (Throwable e) {
                 e.printStackTrace();
@@ -596,74 +592,8 @@ public class MainWindowController implements Initializable {
         Network network = project.getNetwork();
         List<TrafficGenerator> generators = project.getTrafficGenerators();
 
-        List<MappedRandomVariable.Entry<DemandGenerator<?>>> subGenerators = new ArrayList<>();
-
         try {
-            subGenerators.add(new MappedRandomVariable.Entry<>(29, new AnycastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new ConstantRandomVariable<>(false),
-                    new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 210, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(18, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(11, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("replicas")), new UniformRandomVariable.Generic<>(network.getGroup("replicas")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(40, 410, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getGroup("international")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("international")), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-
-
-            generators.add(new TrafficGenerator(LocaleUtils.translate("no_backup"), new MappedRandomVariable<>(subGenerators)));
-
-            subGenerators = new ArrayList<>();
-
-            subGenerators.add(new MappedRandomVariable.Entry<>(29, new AnycastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new ConstantRandomVariable<>(false),
-                    new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 210, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(18, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(11, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("replicas")), new UniformRandomVariable.Generic<>(network.getGroup("replicas")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(40, 410, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getGroup("international")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("international")), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-
-            generators.add(new TrafficGenerator(LocaleUtils.translate("dedicated_backup"), new MappedRandomVariable<>(subGenerators)));
-
-            subGenerators = new ArrayList<>();
-
-            subGenerators.add(new MappedRandomVariable.Entry<>(29, new AnycastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new ConstantRandomVariable<>(false),
-                    new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 210, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(18, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(11, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("replicas")), new UniformRandomVariable.Generic<>(network.getGroup("replicas")),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(40, 410, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getGroup("international")),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("international")), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-
-            subGenerators.add(new MappedRandomVariable.Entry<>(29, new AnycastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new ConstantRandomVariable<>(false),
-                    new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 210, 10), new ConstantRandomVariable<>(0.5f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(18, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(0.5f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(11, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("replicas")), new UniformRandomVariable.Generic<>(network.getGroup("replicas")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(40, 410, 10), new ConstantRandomVariable<>(0.5f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getGroup("international")),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(0.5f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("international")), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(false), new ConstantRandomVariable<>(true), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(0.5f))));
-
-            subGenerators.add(new MappedRandomVariable.Entry<>(29, new AnycastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new ConstantRandomVariable<>(true),
-                    new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 210, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(18, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(11, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("replicas")), new UniformRandomVariable.Generic<>(network.getGroup("replicas")),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(40, 410, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getNodes()), new UniformRandomVariable.Generic<>(network.getGroup("international")),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-            subGenerators.add(new MappedRandomVariable.Entry<>(21, new UnicastDemandGenerator(new UniformRandomVariable.Generic<>(network.getGroup("international")), new UniformRandomVariable.Generic<>(network.getNodes()),
-                    new ConstantRandomVariable<>(true), new ConstantRandomVariable<>(false), new UniformRandomVariable.Integer(10, 110, 10), new ConstantRandomVariable<>(1f))));
-
-            generators.add(new TrafficGenerator(LocaleUtils.translate("shared_backup"), new MappedRandomVariable<>(subGenerators)));
+            generators.addAll(TrafficGenerator.createDefaultGenerators(network));
 
             SimulationMenuController.generatorsStatic.setItems(new ObservableListWrapper<>(generators));
         }
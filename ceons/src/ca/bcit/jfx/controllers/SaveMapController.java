@@ -488,9 +488,8 @@ public class SaveMapController implements Initializable {
                 ArrayList<Integer> linkedNodeNums = new ArrayList<Integer>();
                 String linkedNodesToString = "";
                 String nodeTypesToString = "";
-                for (NetworkNode otherNode : network.getNodes())
-                    if (network.containsLink(n1, otherNode))
-                        linkedNodeNums.add(otherNode.getNodeNum());
+                for (int i = 0; i < network.getNeighboursCount(n1); i++)
+                    linkedNodeNums.add(network.getNeighbour(n1, i).getNodeNum());
 
                 Collections.sort(linkedNodeNums);
                 if (!uniqueLinks.contains(linkedNodeNums))
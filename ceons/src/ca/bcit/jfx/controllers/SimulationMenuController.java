@@ -3,7 +3,6 @@ package ca.bcit.jfx.controllers;
 import ca.bcit.ApplicationResources;
 import ca.bcit.Settings;
 import ca.bcit.graph.Path;
-import ca.bcit.io.MapLoadingException;
 import ca.bcit.jfx.DrawingState;
 import ca.bcit.jfx.components.*;
 import ca.bcit.jfx.tasks.SimulationTask;
@@ -11,6 +10,8 @@ import ca.bcit.net.MetricType;
 import ca.bcit.net.Modulation;
 import ca.bcit.net.Network;
 import ca.bcit.net.Simulation;
+import ca.bcit.net.SimulationEngine;
+import ca.bcit.net.SweepExecutor;
 import ca.bcit.net.algo.IRMSAAlgorithm;
 import ca.bcit.net.demand.generator.TrafficGenerator;
 import ca.bcit.utils.LocaleUtils;
@@ -48,9 +49,7 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.List;
 
 public class SimulationMenuController implements Initializable {
 	public FlowPane algoCheckBoxContainer;
@@ -339,7 +338,7 @@ public class SimulationMenuController implements Initializable {
 			setMultipleSimulationsRan(false);
 			progressBar.clearData();
 
-			//If multiple simulations is selected then we will create a single thread executor otherwise to run multiple consecutive simulations back-to-back, otherwise, run one task
+			//If multiple simulations is selected then we will run the whole sweep concurrently, otherwise, run one task
 			if (!runMultipleSimulations.isSelected()) {
 				simulation = new Simulation(network, generators.getValue());
 
@@ -357,14 +356,6 @@ public class SimulationMenuController implements Initializable {
 					alert.showAndWait();
 					return;
 				}
-				final ExecutorService runMultipleSimulationService = Executors.newSingleThreadExecutor(new ThreadFactory() {
-					@Override
-					public Thread newThread(Runnable runnable) {
-						Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-						thread.setDaemon(true);
-						return thread;
-					}
-				});
 				ArrayList<IRMSAAlgorithm> algorithms = new ArrayList<>();
 				for (Node algorithmBox : algoCheckBoxContainer.getChildren()) {
 					if (!((CheckBox) algorithmBox).isSelected())
@@ -376,25 +367,21 @@ public class SimulationMenuController implements Initializable {
 							break;
 						}
 				}
-				ArrayList<ArrayList> tasks = new ArrayList<>();
+				ArrayList<Long> seeds = new ArrayList<>();
 				for (int numRepetitions = 1; numRepetitions <= numRepetitionsPerErlang.getValue(); numRepetitions++) {
 					Random random = new Random();
 					int randomSeed = random.nextInt(101);
 					TaskReadyProgressBar.addResultsDataSeed(randomSeed);
-					for (int erlangValue = erlangRangeLowField.getValue(); erlangValue <= erlangRangeHighField.getValue(); erlangValue += stepBetweenErlangsField.getValue()) {
-						simulation = new Simulation(network, generators.getValue());
-						simulation.setMultipleSimulations(true);
-						ArrayList taskSettingsArray = new ArrayList();
-						taskSettingsArray.add(simulation);
-						taskSettingsArray.add(randomSeed);
-						taskSettingsArray.add(Double.parseDouble(alpha.getText()));
-						taskSettingsArray.add(erlangValue);
-						taskSettingsArray.add(demands.getValue());
-						taskSettingsArray.add(true);
-						tasks.add(taskSettingsArray);
-					}
+					seeds.add((long) randomSeed);
 				}
-				progressBar.runTasks(algorithms, tasks, true, runMultipleSimulationService, this, network);
+				List<SweepExecutor.Run> runs = SweepExecutor.createRuns(algorithms, generators.getItems().indexOf(generators.getValue()),
+						seeds, erlangRangeLowField.getValue(), erlangRangeHighField.getValue(), stepBetweenErlangsField.getValue(),
+						Double.parseDouble(alpha.getText()), demands.getValue(), true);
+
+				// every worker simulates on its own fork of the network, the network shown in the window stays untouched
+				SimulationEngine engine = new SimulationEngine(ApplicationResources.getProject());
+				SweepExecutor executor = new SweepExecutor(engine::fork);
+				progressBar.runTasks(executor, runs, true, this);
 			}
 		} catch (NullPointerException ex) {
 			ex.printStackTrace();
@@ -461,18 +448,7 @@ public class SimulationMenuController implements Initializable {
 				ResizableCanvas.getParentController().resetGraph();
 				ResizableCanvas.getParentController().graph.changeState(DrawingState.noActionState);
 				if (runMultipleSimulations.isSelected())
-					try {
-						progressBar.getRunMultipleSimulationService().shutdownNow();
-						ResizableCanvas.getParentController().initializeSimulationsAndNetworks();
-					} catch (MapLoadingException ex) {
-						new ErrorDialog(ex.getMessage(), ex);
-						ex.printStackTrace();
-						return;
-					} catch (Exception ex) {
-						new ErrorDialog(LocaleUtils.translate("an_exception_occurred_label"), ex);
-						ex.printStackTrace();
-						return;
-					}
+					progressBar.getSweepExecutor().cancel();
 			} else {
 				paused = false;
 				pauseButton.setText(LocaleUtils.translate("pause_icon"));
@@ -3,9 +3,9 @@ package ca.bcit.jfx.tasks;
 import ca.bcit.io.Logger;
 import ca.bcit.jfx.controllers.SimulationMenuController;
 import ca.bcit.net.Simulation;
+import ca.bcit.net.SimulationListener;
 import ca.bcit.utils.LocaleUtils;
 import javafx.concurrent.Task;
-import java.util.ResourceBundle;
 
 public class SimulationTask extends Task<Void> {
 	
@@ -34,7 +34,14 @@ public class SimulationTask extends Task<Void> {
 			Logger.info(LocaleUtils.translate("starting_simulation") + "! " + "\n\t" + LocaleUtils.translate("simulation_parameter_seed") + ": " + seed + "\n\t" + LocaleUtils.translate("simulation_parameter_alpha") + ": " + alpha + "\n\t" + LocaleUtils.translate("simulation_parameter_erlang") + ": " + erlang +
 					"\n\t" + LocaleUtils.translate("simulation_parameter_number_of_requests") + ": " + demandsCount + "\n\t" + LocaleUtils.translate("simulation_parameter_replica_preservation") + ": " + replicaPreservation);
 			simulationMenuController.setRunning(true);
-			simulation.simulate(seed, demandsCount, alpha, erlang, replicaPreservation, this);
+			simulation.addListener(new SimulationUIListener(false));
+			simulation.addListener(new SimulationListener() {
+				@Override
+				public void simulationProgressed(Simulation simulation, int generatedDemands, int demandsCount) {
+					updateProgress(generatedDemands, demandsCount);
+				}
+			});
+			simulation.simulate(seed, demandsCount, alpha, erlang, replicaPreservation);
 			Logger.info(LocaleUtils.translate("simulation_finished") + "!");
 			simulationMenuController.setRunning(false);
 		}
@@ -0,0 +1,91 @@
+package ca.bcit.jfx.tasks;
+
+import ca.bcit.ApplicationResources;
+import ca.bcit.io.SimulationSummary;
+import ca.bcit.jfx.components.ResizableCanvas;
+import ca.bcit.jfx.components.TaskReadyProgressBar;
+import ca.bcit.jfx.controllers.MainWindowController;
+import ca.bcit.jfx.controllers.SimulationMenuController;
+import ca.bcit.net.Simulation;
+import ca.bcit.net.SimulationListener;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Connects a running simulation with the main window: live graph, blocked volume summary,
+ * pause and cancel buttons and the results data files used for the reports.
+ * Multiple simulations run concurrently on their own networks, so for them only the pause and cancel buttons are handled.
+ */
+public class SimulationUIListener implements SimulationListener {
+
+	private final boolean multipleSimulations;
+
+	public SimulationUIListener(boolean multipleSimulations) {
+		this.multipleSimulations = multipleSimulations;
+	}
+
+	@Override
+	public void simulationStarted(Simulation simulation) {
+		if (multipleSimulations)
+			return;
+
+		SimulationMenuController.finished = false;
+		SimulationMenuController.cancelled = false;
+
+		MainWindowController mainWindowController = ResizableCanvas.getParentController();
+		mainWindowController.totalVolume = 0;
+		mainWindowController.spectrumBlockedVolume = 0;
+		mainWindowController.regeneratorsBlockedVolume = 0;
+		mainWindowController.linkFailureBlockedVolume = 0;
+		mainWindowController.updateGraph();
+	}
+
+	@Override
+	public void simulationProgressed(Simulation simulation, int generatedDemands, int demandsCount) {
+		SimulationMenuController.started = true;
+
+		if (!multipleSimulations) {
+			MainWindowController mainWindowController = ResizableCanvas.getParentController();
+			mainWindowController.totalVolume = simulation.getTotalVolume();
+			mainWindowController.spectrumBlockedVolume = simulation.getSpectrumBlockedVolume();
+			mainWindowController.regeneratorsBlockedVolume = simulation.getRegeneratorsBlockedVolume();
+			mainWindowController.linkFailureBlockedVolume = simulation.getLinkFailureBlockedVolume();
+		}
+
+		// pause button
+		while (SimulationMenuController.paused) {
+			try {
+				Thread.sleep(10);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		// cancel button
+		if (SimulationMenuController.cancelled)
+			simulation.cancel();
+	}
+
+	@Override
+	public void simulationFinished(Simulation simulation, SimulationSummary summary) {
+		if (multipleSimulations)
+			return;
+
+		ResizableCanvas.getParentController().stopUpdateGraph();
+		ResizableCanvas.getParentController().resetGraph();
+
+		// signal GUI menus that simulation is complete
+		SimulationMenuController.finished = true;
+
+		// write the resulting data of a successful simulation to file
+		String projectName = ApplicationResources.getProject().getName();
+		File resultsDirectory = new File(Simulation.RESULTS_DATA_DIR_NAME);
+		try {
+			TaskReadyProgressBar.addResultsDataFileName(summary.save(resultsDirectory, projectName));
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
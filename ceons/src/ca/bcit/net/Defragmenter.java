@@ -0,0 +1,250 @@
+package ca.bcit.net;
+
+import ca.bcit.net.demand.Demand;
+import ca.bcit.net.spectrum.Spectrum;
+import ca.bcit.net.spectrum.SpectrumAssignmentPolicy;
+import ca.bcit.net.spectrum.WorkingSpectrumSegment;
+import ca.bcit.utils.IntegerRange;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Consolidates the working lightpaths of a network toward the low end of the spectrum. A lightpath is a part of
+ * a working path between regenerators. Moves are make-before-break: the new segment is allocated on all links of
+ * the lightpath while the old one is still held, so a lightpath only moves into slices that are free on all of its links.
+ * A run tries the lightpaths occupying the highest slices first and moves each one to the lowest slices it fits into,
+ * until the limit of moves is reached.
+ */
+public class Defragmenter {
+
+	public enum Trigger {
+		/** Every interval steps */
+		PERIODIC,
+		/** When the mean external fragmentation of the links reaches the threshold, at most once per interval steps */
+		THRESHOLD,
+		/** When a demand is blocked for lack of spectrum, at most once per interval steps, the demand is then allocated again */
+		BLOCK
+	}
+
+	private final Trigger trigger;
+	private final int interval;
+	private final double threshold;
+	private final int maxMoves;
+
+	private int lastRunStep;
+	private int runsCount;
+	private int movesCount;
+	private long runsNanos;
+	private double fragmentationReduction;
+	private double recoveredVolume;
+
+	// candidates of a run, sorted by their keys: highest offset first, then in the order they were found
+	private long[] keys = new long[256];
+	private Demand[] demands = new Demand[256];
+	private PathPart[] parts = new PathPart[256];
+	private int candidatesCount;
+
+	/**
+	 * @param interval steps between periodic runs, or the minimum steps between runs on the threshold or on block,
+	 *                 0 lets every blocked demand run the defragmentation
+	 * @param threshold mean external fragmentation of the links that triggers a run
+	 * @param maxMoves maximum number of lightpaths moved in a run
+	 */
+	public Defragmenter(Trigger trigger, int interval, double threshold, int maxMoves) {
+		if (trigger == null)
+			throw new IllegalArgumentException("defragmentation_trigger_must_not_be_null");
+		if (interval < 0 || trigger != Trigger.BLOCK && interval == 0)
+			throw new IllegalArgumentException("defragmentation_interval_must_be_positive");
+		if (maxMoves <= 0)
+			throw new IllegalArgumentException("defragmentation_moves_must_be_positive");
+		this.trigger = trigger;
+		this.interval = interval;
+		this.threshold = threshold;
+		this.maxMoves = maxMoves;
+		reset();
+	}
+
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	public double getThreshold() {
+		return threshold;
+	}
+
+	public int getMaxMoves() {
+		return maxMoves;
+	}
+
+	/**
+	 * Clears the statistics before a new simulation
+	 */
+	public void reset() {
+		lastRunStep = 0;
+		runsCount = 0;
+		movesCount = 0;
+		runsNanos = 0;
+		fragmentationReduction = 0;
+		recoveredVolume = 0;
+	}
+
+	/**
+	 * Runs the periodic and threshold defragmentation, called after every step
+	 * @param meanExternalFragmentation current mean external fragmentation of the links
+	 */
+	public void onStep(Network network, double meanExternalFragmentation) {
+		int step = network.getStep();
+		if (trigger == Trigger.PERIODIC && step % interval == 0
+				|| trigger == Trigger.THRESHOLD && meanExternalFragmentation >= threshold && step - lastRunStep >= interval) {
+			lastRunStep = step;
+			defragment(network, meanExternalFragmentation);
+		}
+	}
+
+	/**
+	 * Runs the defragmentation on block, called when a demand is blocked for lack of spectrum
+	 * @return whether any lightpath moved, so the demand may fit now
+	 */
+	public boolean onBlocked(Network network) {
+		if (trigger != Trigger.BLOCK || network.getStep() - lastRunStep < interval)
+			return false;
+		lastRunStep = network.getStep();
+		return defragment(network, network.getMeanExternalFragmentation()) > 0;
+	}
+
+	/**
+	 * Records a demand that was allocated after it had been blocked and the defragmentation moved some lightpaths
+	 */
+	public void onRecovered(Demand demand) {
+		recoveredVolume += demand.getVolume();
+	}
+
+	/**
+	 * @return number of moved lightpaths
+	 */
+	private int defragment(Network network, double meanExternalFragmentation) {
+		long start = System.nanoTime();
+		collectCandidates(network);
+		int moves = 0;
+		for (int i = 0; i < candidatesCount && moves < maxMoves; i++) {
+			int index = (int) keys[i];
+			if (move(network, demands[index], parts[index])) {
+				moves++;
+				if (network.eventLog != null)
+					network.eventLog.moved(network.getStep(), demands[index]);
+			}
+		}
+		Arrays.fill(demands, 0, candidatesCount, null);
+		Arrays.fill(parts, 0, candidatesCount, null);
+
+		runsCount++;
+		movesCount += moves;
+		if (moves > 0)
+			fragmentationReduction += meanExternalFragmentation - network.getMeanExternalFragmentation();
+		runsNanos += System.nanoTime() - start;
+		return moves;
+	}
+
+	private void collectCandidates(Network network) {
+		candidatesCount = 0;
+		// in the order of expiration, which a checkpoint keeps, so a continued simulation moves the same lightpaths
+		for (Demand demand : network.allocatedDemands.getDemands())
+			if (demand.getWorkingPath() != null)
+				for (PathPart part : demand.getWorkingPath())
+					if (part.segment instanceof WorkingSpectrumSegment && part.segment.getRange().getOffset() > 0
+							&& holdsWorking(demand, part))
+						addCandidate(demand, part);
+		Arrays.sort(keys, 0, candidatesCount);
+	}
+
+	/**
+	 * A part may keep the segment of a failed allocation, only lightpaths whose links all hold the segment are moved
+	 */
+	private static boolean holdsWorking(Demand demand, PathPart part) {
+		for (Spectrum spectrum : part.spectra)
+			if (!spectrum.holdsWorking(demand, part.segment.getRange()))
+				return false;
+		return true;
+	}
+
+	private void addCandidate(Demand demand, PathPart part) {
+		if (candidatesCount == keys.length) {
+			keys = Arrays.copyOf(keys, candidatesCount * 2);
+			demands = Arrays.copyOf(demands, candidatesCount * 2);
+			parts = Arrays.copyOf(parts, candidatesCount * 2);
+		}
+		keys[candidatesCount] = (long) (Integer.MAX_VALUE - part.segment.getRange().getOffset()) << 32 | candidatesCount;
+		demands[candidatesCount] = demand;
+		parts[candidatesCount] = part;
+		candidatesCount++;
+	}
+
+	/**
+	 * Moves the lightpath to the lowest slices free on all of its links, if they are below its current ones
+	 */
+	private boolean move(Network network, Demand demand, PathPart part) {
+		IntegerRange range = part.segment.getRange();
+		int offset = network.getSpectrumIntersection().canAllocateWorking(part.spectra, range.getLength(),
+				SpectrumAssignmentPolicy.Standard.FIRST_FIT, network.getSpectrumAssigner());
+		if (offset == -1 || offset >= range.getOffset())
+			return false;
+
+		part.segment = new WorkingSpectrumSegment(offset, range.getLength(), demand);
+		for (Spectrum spectrum : part.spectra)
+			spectrum.allocate(part.segment);
+		for (Spectrum spectrum : part.spectra)
+			spectrum.deallocate(demand, range);
+		return true;
+	}
+
+	public int getRunsCount() {
+		return runsCount;
+	}
+
+	public int getMovesCount() {
+		return movesCount;
+	}
+
+	public double getRunsMillis() {
+		return runsNanos / 1e6;
+	}
+
+	/**
+	 * @return sum of the decreases of the mean external fragmentation of the links by the runs that moved lightpaths
+	 */
+	public double getFragmentationReduction() {
+		return fragmentationReduction;
+	}
+
+	/**
+	 * @return volume of the demands allocated only thanks to the defragmentation on block
+	 */
+	public double getRecoveredVolume() {
+		return recoveredVolume;
+	}
+
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(lastRunStep);
+		out.writeInt(runsCount);
+		out.writeInt(movesCount);
+		out.writeLong(runsNanos);
+		out.writeDouble(fragmentationReduction);
+		out.writeDouble(recoveredVolume);
+	}
+
+	public void readState(DataInput in) throws IOException {
+		lastRunStep = in.readInt();
+		runsCount = in.readInt();
+		movesCount = in.readInt();
+		runsNanos = in.readLong();
+		fragmentationReduction = in.readDouble();
+		recoveredVolume = in.readDouble();
+	}
+}
@@ -1,11 +1,9 @@
 package ca.bcit.net;
 
+/**
+ * Transmission reach and slices consumption of the modulations are kept per network in its {@link ModulationProfile}
+ */
 public enum Modulation {
 	
 	BPSK, QPSK, QAM8, QAM16, QAM32, QAM64;
-	
-	//each modulation has transmission reach limit
-	public final int[] modulationDistances = new int[40];
-	//each modulation uses different values of slices
-	public final int[] slicesConsumption = new int[40];
 }
@@ -0,0 +1,66 @@
+package ca.bcit.net;
+
+/**
+ * Transceiver characteristics of a network: reach and slices consumption of every modulation for every volume.
+ * Profiles are immutable, so networks with different profiles can be simulated at the same time.
+ */
+public final class ModulationProfile {
+
+	/** Volumes are given in steps of 10 Gbps, from 10 to 400 Gbps */
+	public static final int VOLUME_LEVELS_COUNT = 40;
+
+	private static final ModulationProfile DEFAULT = createDefault();
+
+	// indexed by modulation.ordinal() * VOLUME_LEVELS_COUNT + volume level
+	private final int[] distances = new int[Modulation.values().length * VOLUME_LEVELS_COUNT];
+	private final int[] slicesConsumptions = new int[Modulation.values().length * VOLUME_LEVELS_COUNT];
+
+	/**
+	 * @param distances transmission reach for every modulation (first index, by ordinal) and volume level
+	 * @param slicesConsumptions number of slices for every modulation (first index, by ordinal) and volume level
+	 */
+	public ModulationProfile(int[][] distances, int[][] slicesConsumptions) {
+		if (distances.length != Modulation.values().length || slicesConsumptions.length != Modulation.values().length)
+			throw new NetworkException("modulation_profile_must_contain_all_modulations");
+		for (int i = 0; i < Modulation.values().length; i++) {
+			if (distances[i].length != VOLUME_LEVELS_COUNT || slicesConsumptions[i].length != VOLUME_LEVELS_COUNT)
+				throw new NetworkException("modulation_profile_must_contain_all_volumes");
+			System.arraycopy(distances[i], 0, this.distances, i * VOLUME_LEVELS_COUNT, VOLUME_LEVELS_COUNT);
+			System.arraycopy(slicesConsumptions[i], 0, this.slicesConsumptions, i * VOLUME_LEVELS_COUNT, VOLUME_LEVELS_COUNT);
+		}
+	}
+
+	/**
+	 * Profile with the values written into new projects
+	 */
+	public static ModulationProfile getDefault() {
+		return DEFAULT;
+	}
+
+	private static ModulationProfile createDefault() {
+		ModulationInIfStatement modulationInIfStatement = new ModulationInIfStatement();
+		int[][] distances = new int[Modulation.values().length][];
+		int[][] slicesConsumptions = new int[Modulation.values().length][];
+		for (Modulation modulation : Modulation.values()) {
+			distances[modulation.ordinal()] = modulationInIfStatement.modulationDistance(modulation.toString());
+			slicesConsumptions[modulation.ordinal()] = modulationInIfStatement.slicesConsumption(modulation.toString());
+		}
+		return new ModulationProfile(distances, slicesConsumptions);
+	}
+
+	/**
+	 * @param volume volume level, i.e. volume / 10 - 1
+	 * @return transmission reach of the modulation
+	 */
+	public int getDistance(Modulation modulation, int volume) {
+		return distances[modulation.ordinal() * VOLUME_LEVELS_COUNT + volume];
+	}
+
+	/**
+	 * @param volume volume level, i.e. volume / 10 - 1
+	 * @return number of slices used by the modulation
+	 */
+	public int getSlicesConsumption(Modulation modulation, int volume) {
+		return slicesConsumptions[modulation.ordinal() * VOLUME_LEVELS_COUNT + volume];
+	}
+}
@@ -2,15 +2,21 @@ package ca.bcit.net;
 
 import ca.bcit.graph.Graph;
 import ca.bcit.graph.Relation;
+import ca.bcit.io.EventLog;
 import ca.bcit.io.YamlSerializable;
 import ca.bcit.net.algo.IRMSAAlgorithm;
 import ca.bcit.net.demand.Demand;
 import ca.bcit.net.demand.DemandAllocationResult;
+import ca.bcit.net.demand.DemandExpirationQueue;
 import ca.bcit.net.demand.generator.TrafficGenerator;
 import ca.bcit.net.spectrum.BackupSpectrumSegment;
+import ca.bcit.net.spectrum.FragmentationSums;
 import ca.bcit.net.spectrum.Spectrum;
+import ca.bcit.net.spectrum.SpectrumAssignmentPolicy;
+import ca.bcit.net.spectrum.SpectrumIntersection;
 import ca.bcit.net.spectrum.SpectrumSegment;
 import ca.bcit.net.spectrum.WorkingSpectrumSegment;
+import ca.bcit.utils.random.StatefulRandom;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -22,10 +28,11 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 	final Map<String, NetworkNode> nodes = new HashMap<>();
 	private final Map<String, List<NetworkNode>> nodesGroups = new HashMap<>();
 
-	private final Set<Relation<NetworkNode, NetworkLink, NetworkPath>> inactiveLinks = new HashSet<>();
-	private final Set<NetworkPath> inactivePaths = new HashSet<>();
+	final Set<Relation<NetworkNode, NetworkLink, NetworkPath>> inactiveLinks = new HashSet<>();
+	final Set<NetworkPath> inactivePaths = new HashSet<>();
 	
 	private final List<Modulation> modulations = new ArrayList<>();
+	private ModulationProfile modulationProfile = ModulationProfile.getDefault();
 	private MetricType modulationMetricType;
 	private final int[][] modulationMetrics = new int[6][6];
 	
@@ -37,14 +44,63 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 	private TrafficGenerator trafficGenerator;
 	private int bestPathsCount;
 	private boolean canSwitchModulation;
-	private ArrayList<Demand> allocatedDemands = new ArrayList<>();
+	final DemandExpirationQueue allocatedDemands = new DemandExpirationQueue();
 
 	private int maxPathsCount;
 
+	Spectrum[] linkSlices = new Spectrum[0];
+	// paths whose allocation failed in the last allocation of a demand
+	final List<PartedPath> failedAllocations = new ArrayList<>();
+	// fragmentation of the spectra in linkSlices
+	FragmentationSums fragmentationSums = new FragmentationSums();
+	int[] occupiedRegenerators = new int[0];
+	private volatile NetworkSnapshot snapshot = new NetworkSnapshot(0, 0, linkSlices, occupiedRegenerators);
+	private volatile boolean snapshotRequested;
+	private long snapshotVersion;
+	private final SpectrumIntersection spectrumIntersection = new SpectrumIntersection(NetworkLink.NUMBER_OF_SLICES);
+	private SpectrumAssignmentPolicy workingSpectrumAssignmentPolicy = SpectrumAssignmentPolicy.Standard.FIRST_FIT;
+	private SpectrumAssignmentPolicy backupSpectrumAssignmentPolicy = SpectrumAssignmentPolicy.Standard.LAST_FIT;
+	StatefulRandom spectrumAssigner = new StatefulRandom(0);
+
 	public Network() {
 		super(new NetworkPathBuilder());
 	}
 
+	/**
+	 * Creates a network sharing the nodes, links, groups and calculated paths of this one, with the same simulation settings.
+	 * The fork has its own spectrum, regenerators and allocated demands, so it can be simulated concurrently with this network.
+	 * The topology must not be edited while forks are in use.
+	 * @return network with free resources
+	 */
+	public Network fork() {
+		return new Network(this);
+	}
+
+	private Network(Network network) {
+		super(network, new NetworkPathBuilder());
+		nodes.putAll(network.nodes);
+		nodesGroups.putAll(network.nodesGroups);
+		modulations.addAll(network.modulations);
+		modulationProfile = network.modulationProfile;
+		modulationMetricType = network.modulationMetricType;
+		for (int i = 0; i < modulationMetrics.length; i++)
+			System.arraycopy(network.modulationMetrics[i], 0, modulationMetrics[i], 0, modulationMetrics[i].length);
+		regeneratorMetricType = network.regeneratorMetricType;
+		regeneratorMetricValue = network.regeneratorMetricValue;
+		demandAllocationAlgorithm = network.demandAllocationAlgorithm;
+		trafficGenerator = network.trafficGenerator;
+		bestPathsCount = network.bestPathsCount;
+		canSwitchModulation = network.canSwitchModulation;
+		maxPathsCount = network.maxPathsCount;
+		workingSpectrumAssignmentPolicy = network.workingSpectrumAssignmentPolicy;
+		backupSpectrumAssignmentPolicy = network.backupSpectrumAssignmentPolicy;
+	}
+
+	@Override
+	protected long getWeight(NetworkLink link) {
+		return link.getLength();
+	}
+
 	public int getMaxPathsCount() {
 		return maxPathsCount;
 	}
@@ -87,31 +143,62 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 	}
 	
 	public DemandAllocationResult allocateDemand(Demand demand) {
+		failedAllocations.clear();
+		demand.startHolding(allocatedDemands.getStep());
 		DemandAllocationResult result = demandAllocationAlgorithm.allocateDemand(demand, this);
 		if (result.type == DemandAllocationResult.Type.SUCCESS)
 			allocatedDemands.add(demand);
 		return result;
 	}
 	
+	/**
+	 * Releases the regenerators and segments the failed paths of the last allocation of the demand kept,
+	 * so the demand can be allocated again without holding them twice
+	 */
+	public void releaseFailedAllocations(Demand demand) {
+		for (PartedPath path : failedAllocations)
+			path.releaseFailedAllocation(demand);
+		failedAllocations.clear();
+	}
+
+	/**
+	 * @return number of steps since the start of the simulation
+	 */
+	public int getStep() {
+		return allocatedDemands.getStep();
+	}
+	
+	/**
+	 * Moves the network to the next step, deallocating the demands that expire in the current one
+	 */
 	public void update() {
-		for (int i = 0; i < allocatedDemands.size(); i++)
-			if (allocatedDemands.get(i).isDead()) {
-				allocatedDemands.get(i).deallocate();
-				allocatedDemands.remove(i);
-				i--;
-			}
-			else
-				allocatedDemands.get(i).tick();
+		allocatedDemands.advance();
+		if (snapshotRequested)
+			publishSnapshot();
 	}
 	
 	public void waitForDemandsDeath() {
-		while (!allocatedDemands.isEmpty()) update();
-		allocatedDemands = new ArrayList<>();
-		for (Map.Entry<String, NetworkNode> entry: nodes.entrySet())
-			entry.getValue().clearOccupied();
+		allocatedDemands.drain();
+		Arrays.fill(occupiedRegenerators, 0);
 
 		inactiveLinks.clear();
 		inactivePaths.clear();
+		publishSnapshot();
+	}
+
+	/**
+	 * Can be called from any thread. The thread simulating on the network publishes a new snapshot in the next step
+	 * after a call, so a reader polling periodically sees the occupancy of a recent step.
+	 * @return last published occupancy of the network
+	 */
+	public NetworkSnapshot getSnapshot() {
+		snapshotRequested = true;
+		return snapshot;
+	}
+
+	private void publishSnapshot() {
+		snapshotRequested = false;
+		snapshot = new NetworkSnapshot(++snapshotVersion, getStep(), linkSlices, occupiedRegenerators);
 	}
 	
 	// NODES GROUPS
@@ -170,34 +257,49 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 	
 	// LINKS
 	
-	private Random linkDestroyer;
+	StatefulRandom linkDestroyer;
+	EventLog eventLog;
+	
+	/**
+	 * @param eventLog log of the releases, link cuts and backup changes in the network or null
+	 */
+	public void setEventLog(EventLog eventLog) {
+		this.eventLog = eventLog;
+		allocatedDemands.setEventLog(eventLog);
+	}
 	
 	public void setSeed(long seed) {
-		linkDestroyer = new Random(seed);
+		linkDestroyer = new StatefulRandom(seed);
 	}
 	
 	public Set<Demand> cutLink() {
+		// in the order of the relations: by the higher ID of their nodes, then by the lower one
 		List<Relation<NetworkNode, NetworkLink, NetworkPath>> links = new ArrayList<>();
-		for (Relation<NetworkNode, NetworkLink, NetworkPath> relation : relations)
-			if (relation.hasLink() && !inactiveLinks.contains(relation))
-				links.add(relation);
+		for (NetworkNode node : getNodes())
+			for (int i = 0; i < getNeighboursCount(node) && getNeighbour(node, i).getID() < node.getID(); i++) {
+				Relation<NetworkNode, NetworkLink, NetworkPath> relation = relations.get(Relation.hash(node.getID(), getNeighbour(node, i).getID()));
+				if (!inactiveLinks.contains(relation))
+					links.add(relation);
+			}
 		Relation<NetworkNode, NetworkLink, NetworkPath> link = links.get(linkDestroyer.nextInt(links.size()));
 		inactiveLinks.add(link);
+		if (eventLog != null)
+			eventLog.linkCut(getStep(), link.nodeA, link.nodeB);
 		for (Relation<NetworkNode, NetworkLink, NetworkPath> relation : relations)
 			for (NetworkPath path : relation.getPaths())
 				if (Math.abs(path.indexOf(relation.nodeA) - path.indexOf(relation.nodeB)) == 1)
 					inactivePaths.add(path);
 		
-		Set<Demand> working = new HashSet<>();
-		Set<Demand> backup = new HashSet<>();
-		Set<Demand> result = new HashSet<>();
-		for (SpectrumSegment segment : link.getLink().slicesDown.getSegments())
+		Set<Demand> working = new LinkedHashSet<>();
+		Set<Demand> backup = new LinkedHashSet<>();
+		Set<Demand> result = new LinkedHashSet<>();
+		for (SpectrumSegment segment : getLinkSlices(link.nodeB, link.nodeA).getSegments())
 			if (segment instanceof WorkingSpectrumSegment)
 				working.add(((WorkingSpectrumSegment) segment).getOwner());
 			else if (segment instanceof BackupSpectrumSegment)
 				backup.addAll(((BackupSpectrumSegment) segment).getDemands());
 
-		for (SpectrumSegment segment : link.getLink().slicesUp.getSegments())
+		for (SpectrumSegment segment : getLinkSlices(link.nodeA, link.nodeB).getSegments())
 			if (segment instanceof WorkingSpectrumSegment)
 				working.add(((WorkingSpectrumSegment) segment).getOwner());
 			else if (segment instanceof BackupSpectrumSegment)
@@ -208,9 +310,14 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 				result.add(demand);
 				allocatedDemands.remove(demand);
 			}
+			else if (eventLog != null)
+				eventLog.backupClaimed(getStep(), demand);
 
-		for (Demand demand : backup)
+		for (Demand demand : backup) {
 			demand.onBackupFailure();
+			if (eventLog != null)
+				eventLog.backupLost(getStep(), demand);
+		}
 		
 		if (links.size() == 1)
 			throw new NetworkException("all_links_in_the_network_failed");
@@ -218,17 +325,111 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 		return result;
 	}
 	
+	Relation<NetworkNode, NetworkLink, NetworkPath> getRelation(NetworkNode nodeA, NetworkNode nodeB) {
+		return relations.get(Relation.hash(nodeA.getID(), nodeB.getID()));
+	}
+	
 	public boolean isInactive(NetworkPath path) {
 		return inactivePaths.contains(path);
 	}
 	
+	/**
+	 * Spectrum of the link in the direction from source to destination
+	 */
 	public Spectrum getLinkSlices(NetworkNode source, NetworkNode destination) {
-		NetworkLink link = getLink(source, destination);
-		return source.getID() < destination.getID() ? link.slicesUp : link.slicesDown;
+		int index = linkIndex(source, destination);
+		if (index >= linkSlices.length)
+			linkSlices = Arrays.copyOf(linkSlices, Math.max(index + 1, 2 * getNodesPairsCount()));
+		if (linkSlices[index] == null)
+			linkSlices[index] = new Spectrum(NetworkLink.NUMBER_OF_SLICES, fragmentationSums);
+		return linkSlices[index];
+	}
+	
+	/**
+	 * @return mean external fragmentation of the spectra in both directions of all links, see {@link Spectrum#getExternalFragmentation()}
+	 */
+	public double getMeanExternalFragmentation() {
+		return getMeanFragmentation(false);
+	}
+
+	/**
+	 * @return mean entropy fragmentation of the spectra in both directions of all links, see {@link Spectrum#getEntropyFragmentation()}
+	 */
+	public double getMeanEntropyFragmentation() {
+		return getMeanFragmentation(true);
+	}
+
+	private double getMeanFragmentation(boolean entropy) {
+		int spectraCount = 2 * getLinksCount();
+		if (spectraCount == 0)
+			return 0;
+		// spectra that were not used yet are not fragmented and not in the sums
+		return (entropy ? fragmentationSums.getEntropy() : fragmentationSums.getExternal()) / spectraCount;
+	}
+
+	static int linkIndex(NetworkNode source, NetworkNode destination) {
+		return 2 * Relation.hash(source.getID(), destination.getID()) + (source.getID() < destination.getID() ? 0 : 1);
+	}
+	
+	/**
+	 * Frees the spectrum of all links and all regenerators
+	 */
+	public void clearResources() {
+		linkSlices = new Spectrum[2 * getNodesPairsCount()];
+		fragmentationSums = new FragmentationSums();
+		occupiedRegenerators = new int[nodes.size()];
+		publishSnapshot();
+	}
+	
+	/**
+	 * @return buffers for searching the spectra of path parts, used by the thread simulating on the network
+	 */
+	public SpectrumIntersection getSpectrumIntersection() {
+		return spectrumIntersection;
 	}
 	
+	public SpectrumAssignmentPolicy getWorkingSpectrumAssignmentPolicy() {
+		return workingSpectrumAssignmentPolicy;
+	}
+
+	public SpectrumAssignmentPolicy getBackupSpectrumAssignmentPolicy() {
+		return backupSpectrumAssignmentPolicy;
+	}
+
+	/**
+	 * @param working policy placing the segments of working paths
+	 * @param backup policy placing the segments of backup paths
+	 */
+	public void setSpectrumAssignmentPolicies(SpectrumAssignmentPolicy working, SpectrumAssignmentPolicy backup) {
+		if (working == null || backup == null)
+			throw new NetworkException("spectrum_assignment_policy_must_not_be_null");
+		workingSpectrumAssignmentPolicy = working;
+		backupSpectrumAssignmentPolicy = backup;
+	}
+
+	/**
+	 * Seeds the random choices of the spectrum assignment policies
+	 */
+	public void setSpectrumAssignmentSeed(long seed) {
+		spectrumAssigner = new StatefulRandom(seed);
+	}
+
+	public Random getSpectrumAssigner() {
+		return spectrumAssigner;
+	}
+
 	// MODULATION
 	
+	public ModulationProfile getModulationProfile() {
+		return modulationProfile;
+	}
+	
+	public void setModulationProfile(ModulationProfile modulationProfile) {
+		if (modulationProfile == null)
+			throw new NetworkException("modulation_profile_must_not_be_null");
+		this.modulationProfile = modulationProfile;
+	}
+	
 	public MetricType getModualtionMetricType() {
 		return modulationMetricType;
 	}
@@ -291,6 +492,34 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 		this.regeneratorMetricValue = regeneratorMetricValue;
 	}
 	
+	public int getOccupiedRegenerators(NetworkNode node) {
+		return node.getID() < occupiedRegenerators.length ? occupiedRegenerators[node.getID()] : 0;
+	}
+	
+	public int getFreeRegenerators(NetworkNode node) {
+		return node.getRegeneratorsCount() - getOccupiedRegenerators(node);
+	}
+	
+	/**
+	 * Check if there is any unoccupied regenerators left in the node
+	 */
+	public boolean hasFreeRegenerators(NetworkNode node) {
+		return getFreeRegenerators(node) > 0;
+	}
+	
+	/**
+	 * Occupies regenerators of the node, negative count frees them
+	 * @param deallocate skips the check of free regenerators
+	 */
+	public void occupyRegenerators(NetworkNode node, int count, boolean deallocate) {
+		int occupied = getOccupiedRegenerators(node);
+		if (!deallocate && (count > node.getRegeneratorsCount() - occupied || occupied < 0))
+			throw new NetworkException("Regenerators occupation exception! (" + occupied + "/" + node.getRegeneratorsCount() + ")");
+		if (node.getID() >= occupiedRegenerators.length)
+			occupiedRegenerators = Arrays.copyOf(occupiedRegenerators, Math.max(node.getID() + 1, nodes.size()));
+		occupiedRegenerators[node.getID()] += count;
+	}
+	
 	// DESERIALIZATION
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -321,11 +550,10 @@ public class Network extends Graph<NetworkNode, NetworkLink, NetworkPath, Networ
 		List<NetworkNode> nodes = getNodes();
 		map.put("nodes", nodes);
 		Map<List<String>, NetworkLink> links = new HashMap<>();
-		for (int i = 0; i < nodes.size(); i++)
-			for (int j = i + 1; j < nodes.size(); j++)
-				if (containsLink(nodes.get(i), nodes.get(j)))
-					links.put(Arrays.asList(nodes.get(i).getName(), nodes.get(j).getName()),
-							getLink(nodes.get(i), nodes.get(j)));
+		for (NetworkNode node : nodes)
+			for (int i = 0; i < getNeighboursCount(node); i++)
+				if (getNeighbour(node, i).getID() > node.getID())
+					links.put(Arrays.asList(node.getName(), getNeighbour(node, i).getName()), getNeighbourLink(node, i));
 		map.put("links", links);
 		Map<String, List<String>> groups = new HashMap<>();
 		for (Entry<String, List<NetworkNode>> group : nodesGroups.entrySet()) {
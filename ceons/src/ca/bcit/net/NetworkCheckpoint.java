@@ -0,0 +1,250 @@
+package ca.bcit.net;
+
+import ca.bcit.graph.Relation;
+import ca.bcit.net.demand.AnycastDemand;
+import ca.bcit.net.demand.Demand;
+import ca.bcit.net.demand.UnicastDemand;
+import ca.bcit.net.spectrum.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Binary form of the resources of a network in the middle of a simulation: allocated demands with their paths,
+ * spectrum segments of the links, occupied regenerators and failed links. The topology and paths are not saved,
+ * the network has to be loaded from the same project before it is restored.
+ */
+final class NetworkCheckpoint {
+
+	private static final byte UNICAST = 0;
+	private static final byte UPSTREAM = 1;
+	private static final byte DOWNSTREAM = 2;
+
+	private static final byte FREE = 0;
+	private static final byte WORKING = 1;
+	private static final byte BACKUP = 2;
+
+	private NetworkCheckpoint() {}
+
+	static void write(Network network, DataOutput out) throws IOException {
+		out.writeInt(network.getNodes().size());
+		out.writeInt(network.getNodesPairsCount());
+
+		// allocated demands first, in the order of their expiration, then the ones only left in the spectrum
+		List<Demand> queued = network.allocatedDemands.getDemands();
+		Map<Demand, Integer> ids = new LinkedHashMap<>();
+		for (Demand demand : queued)
+			ids.put(demand, ids.size());
+		for (Spectrum spectrum : network.linkSlices)
+			if (spectrum != null)
+				for (SpectrumSegment segment : spectrum.getSegments())
+					if (segment instanceof WorkingSpectrumSegment)
+						ids.putIfAbsent(((WorkingSpectrumSegment) segment).getOwner(), ids.size());
+					else if (segment instanceof BackupSpectrumSegment)
+						for (Demand demand : ((BackupSpectrumSegment) segment).getDemands())
+							ids.putIfAbsent(demand, ids.size());
+
+		out.writeInt(network.allocatedDemands.getStep());
+		out.writeInt(queued.size());
+		out.writeInt(ids.size());
+		for (Demand demand : ids.keySet()) {
+			writeDemand(demand, out);
+			out.writeInt(demand.getExpirationStep());
+			writePath(demand.getWorkingPath(), network, out);
+			writePath(demand.getBackupPath(), network, out);
+		}
+
+		out.writeInt(network.linkSlices.length);
+		for (int i = 0; i < network.linkSlices.length; i++) {
+			Spectrum spectrum = network.linkSlices[i];
+			if (spectrum == null)
+				continue;
+			List<SpectrumSegment> segments = spectrum.getSegments();
+			out.writeInt(i);
+			out.writeInt(segments.size());
+			for (SpectrumSegment segment : segments) {
+				out.writeShort(segment.getRange().getOffset());
+				out.writeShort(segment.getRange().getLength());
+				if (segment instanceof WorkingSpectrumSegment) {
+					out.writeByte(WORKING);
+					out.writeInt(ids.get(((WorkingSpectrumSegment) segment).getOwner()));
+				}
+				else if (segment instanceof BackupSpectrumSegment) {
+					Set<Demand> demands = ((BackupSpectrumSegment) segment).getDemands();
+					out.writeByte(BACKUP);
+					out.writeInt(demands.size());
+					for (Demand demand : demands)
+						out.writeInt(ids.get(demand));
+				}
+				else
+					out.writeByte(FREE);
+			}
+		}
+		out.writeInt(-1);
+
+		out.writeInt(network.occupiedRegenerators.length);
+		for (int occupied : network.occupiedRegenerators)
+			out.writeInt(occupied);
+
+		out.writeBoolean(network.linkDestroyer != null);
+		if (network.linkDestroyer != null)
+			out.writeLong(network.linkDestroyer.getState());
+		out.writeLong(network.spectrumAssigner.getState());
+		out.writeInt(network.inactiveLinks.size());
+		for (Relation<NetworkNode, NetworkLink, NetworkPath> relation : network.inactiveLinks) {
+			out.writeInt(relation.nodeA.getID());
+			out.writeInt(relation.nodeB.getID());
+		}
+		out.writeInt(network.inactivePaths.size());
+		for (NetworkPath path : network.inactivePaths) {
+			NetworkNode source = path.get(0), destination = path.get(path.size() - 1);
+			out.writeInt(source.getID());
+			out.writeInt(destination.getID());
+			out.writeInt(network.getPaths(source, destination).indexOf(path));
+		}
+	}
+
+	/**
+	 * Restores the resources written by {@link #write(Network, DataOutput)}. The resources of the network have to be free.
+	 */
+	static void read(Network network, DataInput in) throws IOException {
+		NetworkNode[] nodes = getNodesByID(network);
+		if (in.readInt() != nodes.length || in.readInt() != network.getNodesPairsCount())
+			throw new IOException("Checkpoint was written for a different topology");
+
+		int step = in.readInt();
+		int queuedCount = in.readInt();
+		Demand[] demands = new Demand[in.readInt()];
+		for (int i = 0; i < demands.length; i++) {
+			Demand demand = readDemand(nodes, in);
+			int expirationStep = in.readInt();
+			PartedPath workingPath = readPath(demand, network, nodes, false, in);
+			PartedPath backupPath = readPath(demand, network, nodes, true, in);
+			demand.restore(expirationStep, workingPath, backupPath);
+			demands[i] = demand;
+		}
+		network.allocatedDemands.restore(step, Arrays.asList(demands).subList(0, queuedCount));
+
+		if (in.readInt() != network.linkSlices.length)
+			throw new IOException("Checkpoint was written for a different topology");
+		for (int index = in.readInt(); index != -1; index = in.readInt()) {
+			List<SpectrumSegment> segments = new ArrayList<>();
+			for (int i = in.readInt(); i > 0; i--) {
+				int offset = in.readShort(), length = in.readShort();
+				switch (in.readByte()) {
+				case WORKING:
+					segments.add(new WorkingSpectrumSegment(offset, length, demands[in.readInt()]));
+					break;
+				case BACKUP:
+					List<Demand> owners = new ArrayList<>();
+					for (int j = in.readInt(); j > 0; j--)
+						owners.add(demands[in.readInt()]);
+					segments.add(new BackupSpectrumSegment(offset, length, owners));
+					break;
+				default:
+					segments.add(new FreeSpectrumSegment(offset, length));
+				}
+			}
+			if (network.linkSlices[index] == null)
+				network.linkSlices[index] = new Spectrum(NetworkLink.NUMBER_OF_SLICES, network.fragmentationSums);
+			network.linkSlices[index].restore(segments);
+		}
+
+		if (in.readInt() != network.occupiedRegenerators.length)
+			throw new IOException("Checkpoint was written for a different topology");
+		for (int i = 0; i < network.occupiedRegenerators.length; i++)
+			network.occupiedRegenerators[i] = in.readInt();
+
+		if (in.readBoolean())
+			network.linkDestroyer.setState(in.readLong());
+		network.spectrumAssigner.setState(in.readLong());
+		network.inactiveLinks.clear();
+		for (int i = in.readInt(); i > 0; i--)
+			network.inactiveLinks.add(network.getRelation(nodes[in.readInt()], nodes[in.readInt()]));
+		network.inactivePaths.clear();
+		for (int i = in.readInt(); i > 0; i--)
+			network.inactivePaths.add(network.getPaths(nodes[in.readInt()], nodes[in.readInt()]).get(in.readInt()));
+	}
+
+	static NetworkNode[] getNodesByID(Network network) {
+		List<NetworkNode> list = network.getNodes();
+		NetworkNode[] nodes = new NetworkNode[list.size()];
+		for (NetworkNode node : list)
+			nodes[node.getID()] = node;
+		return nodes;
+	}
+
+	private static void writeDemand(Demand demand, DataOutput out) throws IOException {
+		if (demand instanceof UnicastDemand) {
+			out.writeByte(UNICAST);
+			out.writeInt(((UnicastDemand) demand).getSource().getID());
+			out.writeInt(((UnicastDemand) demand).getDestination().getID());
+		}
+		else {
+			out.writeByte(demand instanceof AnycastDemand.Upstream ? UPSTREAM : DOWNSTREAM);
+			out.writeInt(((AnycastDemand) demand).getClient().getID());
+			out.writeBoolean(((AnycastDemand) demand).isReplicaPreservation());
+		}
+		out.writeBoolean(demand.reallocate());
+		out.writeBoolean(demand.allocateBackup());
+		out.writeInt(demand.getVolume());
+		out.writeInt(demand.getSqueezedVolume());
+		out.writeInt(demand.getTTL());
+	}
+
+	private static Demand readDemand(NetworkNode[] nodes, DataInput in) throws IOException {
+		byte type = in.readByte();
+		if (type == UNICAST)
+			return new UnicastDemand(nodes[in.readInt()], nodes[in.readInt()], in.readBoolean(), in.readBoolean(), in.readInt(),
+					in.readInt(), in.readInt());
+
+		NetworkNode client = nodes[in.readInt()];
+		boolean replicaPreservation = in.readBoolean();
+		if (type == UPSTREAM)
+			return new AnycastDemand.Upstream(client, in.readBoolean(), in.readBoolean(), in.readInt(), in.readInt(), in.readInt(),
+					replicaPreservation);
+		return new AnycastDemand.Downstream(client, in.readBoolean(), in.readBoolean(), in.readInt(), in.readInt(), in.readInt(),
+				replicaPreservation);
+	}
+
+	private static void writePath(PartedPath path, Network network, DataOutput out) throws IOException {
+		if (path == null) {
+			out.writeInt(-1);
+			return;
+		}
+		NetworkNode source = path.getPath().get(0), destination = path.getPath().get(path.getPath().size() - 1);
+		out.writeInt(network.getPaths(source, destination).indexOf(path.getPath()));
+		out.writeInt(source.getID());
+		out.writeInt(destination.getID());
+		out.writeBoolean(path.isUp());
+		out.writeInt(path.getPartsCount());
+		for (PathPart part : path) {
+			out.writeInt(part.spectra.size());
+			out.writeByte(part.getModulation().ordinal());
+			out.writeShort(part.segment.getRange().getOffset());
+			out.writeShort(part.segment.getRange().getLength());
+		}
+	}
+
+	private static PartedPath readPath(Demand demand, Network network, NetworkNode[] nodes, boolean backup, DataInput in) throws IOException {
+		int index = in.readInt();
+		if (index == -1)
+			return null;
+		NetworkPath networkPath = network.getPaths(nodes[in.readInt()], nodes[in.readInt()]).get(index);
+		PartedPath path = new PartedPath(network, networkPath, in.readBoolean());
+
+		int partsCount = in.readInt();
+		int[] linksCounts = new int[partsCount], offsets = new int[partsCount], slicesCounts = new int[partsCount];
+		Modulation[] modulations = new Modulation[partsCount];
+		for (int i = 0; i < partsCount; i++) {
+			linksCounts[i] = in.readInt();
+			modulations[i] = Modulation.values()[in.readByte()];
+			offsets[i] = in.readShort();
+			slicesCounts[i] = in.readShort();
+		}
+		path.restoreParts(demand, linksCounts, modulations, offsets, slicesCounts, backup);
+		return path;
+	}
+}
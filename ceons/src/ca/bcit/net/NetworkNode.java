@@ -9,13 +9,13 @@ import java.util.Map;
 import ca.bcit.drawing.Node;
 
 /**
- * Network Node with information about the regenerators
+ * Network Node with information about the regenerators, their occupation is kept by the {@link Network}
  */
 public class NetworkNode extends PositionedNode implements YamlSerializable {
 
 	private final String name;
 	private final String location;
-	int regeneratorsCount, occupiedRegenerators;
+	int regeneratorsCount;
 	private Node figureNode;
 	private HashMap<String, Boolean> nodeGroups = new HashMap<>();
 
@@ -34,15 +34,15 @@ public class NetworkNode extends PositionedNode implements YamlSerializable {
 	}
 
 	public void setFigure() {
-		this.figureNode = new Node(getPosition(), getName(), getFreeRegenerators(), getNodeGroups());
+		this.figureNode = new Node(getPosition(), getName(), regeneratorsCount, getNodeGroups());
 	}
 
 	public Node getFigure() {
 		return this.figureNode;
 	}
 
-	public void updateRegeneratorCount() {
-		this.figureNode.setNumberOfRegenerators(getFreeRegenerators());
+	public void updateRegeneratorCount(int freeRegenerators) {
+		this.figureNode.setNumberOfRegenerators(freeRegenerators);
 	}
 
 	/**
@@ -74,13 +74,6 @@ public class NetworkNode extends PositionedNode implements YamlSerializable {
 		return regeneratorsCount;
 	}
 
-	/**
-	 * Reset the occupiedRegenerators variable to 0
-	 */
-	public void clearOccupied(){
-		this.occupiedRegenerators = 0;
-	}
-
 	/**
 	 * Setter Method for regeneratorsCount variable
 	 * @param regeneratorsCount
@@ -106,45 +99,6 @@ public class NetworkNode extends PositionedNode implements YamlSerializable {
 		return this.nodeGroups;
 	}
 
-	/**
-	 * Getter method that return the number of free regenerators
-	 * @return
-	 */
-	public int getFreeRegenerators() {
-		return regeneratorsCount - occupiedRegenerators;
-	}
-
-	/**
-	 * Getter method for occupiedRegenerators variable
-	 * @return
-	 */
-	public int getOccupiedRegenerators() {
-		return occupiedRegenerators;
-	}
-
-	/**
-	 * Check if there is any unoccupied regenerators left
-	 * @return		<code>true</code> if there is at least one free regenerator
-	 * 				<code>false</code> otherwise
-	 */
-	public boolean hasFreeRegenerators() {
-		return regeneratorsCount - occupiedRegenerators > 0;
-	}
-
-	/**
-	 * =======need comment========
-	 * @param count
-	 * @param deallocate
-	 */
-	public void occupyRegenerators(int count, boolean deallocate) {
-		if (deallocate)
-			occupiedRegenerators += count;
-		else if (count > regeneratorsCount - occupiedRegenerators || occupiedRegenerators < 0)
-			throw new NetworkException("Regenerators occupation exception! (" + occupiedRegenerators + "/" + regeneratorsCount + ")");
-		else
-			occupiedRegenerators += count;
-	}
-
 	/**
 	 * Defines the equal operation of NetworkNode class
 	 * @param o		the object that is being compared with
@@ -1,5 +1,6 @@
 package ca.bcit.net;
 
+import ca.bcit.graph.Graph;
 import ca.bcit.graph.Path;
 
 /**
@@ -8,32 +9,46 @@ import ca.bcit.graph.Path;
 public class NetworkPath extends Path<NetworkNode> {
 
 	private final int length;
-	public int[][] energy = new int[6][40];
+	private final long[] links;
 
-	public NetworkPath(NetworkNode[] path, int length) {
+	/**
+	 * @param links bitmap of the links of the path, see {@link #getLinks()}
+	 */
+	public NetworkPath(NetworkNode[] path, int length, long[] links) {
 		super(path);
 		this.length = length;
+		this.links = links;
 	}
 	
 	public int getLength() {
 		return length;
 	}
+
+	/**
+	 * @return bitmap of the links of the path, the link between nodes a and b is bit {@link Graph#getLinkIndex}(a, b),
+	 * must not be modified
+	 */
+	public long[] getLinks() {
+		return links;
+	}
+
+	/**
+	 * @return whether the bitmaps of links have a common link, a missing bitmap shares links with everything
+	 */
+	public static boolean sharesLinks(long[] links, long[] other) {
+		if (links == null || other == null)
+			return true;
+		for (int i = Math.min(links.length, other.length) - 1; i >= 0; i--)
+			if ((links[i] & other[i]) != 0)
+				return true;
+		return false;
+	}
 	
+	/**
+	 * @return whether the paths have no link in common, false if there is no path
+	 */
 	public boolean isDisjoint(PartedPath path) {
-		try {
-			for (int i = 0; i < size(); i++) {
-				int index = path.path.indexOf(get(i));
-				if (index == -1)
-					continue;
-				if (i != 0 && index != 0 && get(i - 1).equals(path.path.get(index - 1)) || i != 0 && index != path.path.size() - 1 && get(i - 1).equals(path.path.get(index + 1)) ||
-						i != size() - 1 && index != 0 && get(i + 1).equals(path.path.get(index - 1)) || i != size() - 1 && index != path.path.size() - 1 && get(i + 1).equals(path.path.get(index + 1)))
-					return false;
-			}
-		}
-		catch (Exception e) {
-			return false;
-		}
-		return true;
+		return path != null && !sharesLinks(links, path.path.links);
 	}
 	
 	@Override
@@ -2,38 +2,23 @@ package ca.bcit.net;
 
 import ca.bcit.graph.PathBuilder;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class NetworkPathBuilder extends PathBuilder<NetworkNode, NetworkPath, Network> {
-	private ArrayList<NetworkNode> path;
-	private int length;
-	
-	@Override
-	public void init() {
-		path = new ArrayList<>();
-	}
-
-	@Override
-	public boolean contains(NetworkNode node) {
-		return path.contains(node);
-	}
-
-	@Override
-	public void addNode(NetworkNode node) {
-		path.add(node);
-		if (path.size() > 1)
-			length += getGraph().getLink(node, path.get(path.size() - 2)).getLength();
-	}
-
-	@Override
-	public void removeTail() {
-		NetworkNode node = path.remove(path.size() - 1);
-		if (path.size() > 0)
-			length -= getGraph().getLink(node, path.get(path.size() - 1)).getLength();
-	}
 
 	@Override
-	public NetworkPath getPath() {
-		return new NetworkPath(path.toArray(new NetworkNode[path.size()]), length);
+	public NetworkPath getPath(List<NetworkNode> nodes) {
+		int length = 0;
+		// only as long as the highest link of the path needs
+		long[] links = new long[0];
+		for (int i = 1; i < nodes.size(); i++) {
+			length += getGraph().getLink(nodes.get(i - 1), nodes.get(i)).getLength();
+			int link = getGraph().getLinkIndex(nodes.get(i - 1), nodes.get(i));
+			if (link >>> 6 >= links.length)
+				links = Arrays.copyOf(links, (link >>> 6) + 1);
+			links[link >>> 6] |= 1L << link;
+		}
+		return new NetworkPath(nodes.toArray(new NetworkNode[nodes.size()]), length, links);
 	}
 }
@@ -0,0 +1,52 @@
+package ca.bcit.net;
+
+import ca.bcit.net.spectrum.Spectrum;
+
+/**
+ * Occupancy of the links and regenerators of a network, published by the thread simulating on the network for other
+ * threads, e.g. the live graph. A snapshot never changes, so it is read without any locking.
+ */
+public final class NetworkSnapshot {
+
+	private final long version;
+	private final int step;
+	// indexed like the spectra of the network
+	private final int[] occupiedSlices;
+	private final int[] occupiedRegenerators;
+
+	NetworkSnapshot(long version, int step, Spectrum[] linkSlices, int[] occupiedRegenerators) {
+		this.version = version;
+		this.step = step;
+		occupiedSlices = new int[linkSlices.length];
+		for (int i = 0; i < linkSlices.length; i++)
+			if (linkSlices[i] != null)
+				occupiedSlices[i] = linkSlices[i].getOccupiedSlices();
+		this.occupiedRegenerators = occupiedRegenerators.clone();
+	}
+
+	/**
+	 * @return number of the snapshot, every published snapshot has a higher one
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return step of the simulation in which the snapshot was taken
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * Occupied slices of the link in the direction from source to destination
+	 */
+	public int getOccupiedSlices(NetworkNode source, NetworkNode destination) {
+		int index = Network.linkIndex(source, destination);
+		return index < occupiedSlices.length ? occupiedSlices[index] : 0;
+	}
+
+	public int getFreeRegenerators(NetworkNode node) {
+		return node.getRegeneratorsCount() - (node.getID() < occupiedRegenerators.length ? occupiedRegenerators[node.getID()] : 0);
+	}
+}
@@ -3,6 +3,7 @@ package ca.bcit.net;
 import ca.bcit.net.demand.Demand;
 import ca.bcit.net.spectrum.BackupSpectrumSegment;
 import ca.bcit.net.spectrum.Spectrum;
+import ca.bcit.net.spectrum.SpectrumIntersection;
 import ca.bcit.net.spectrum.WorkingSpectrumSegment;
 
 import java.util.ArrayList;
@@ -16,11 +17,14 @@ import java.util.function.Consumer;
 public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 
 	final NetworkPath path;
+	private final Network network;
 	private final boolean isUp;
 
 	private final ArrayList<PathPart> parts = new ArrayList<>();
 	private double occupiedRegeneratorsPercentage;
 	private double metric = -1.0;
+	// number of parts that got their segments before the allocation of the path failed
+	private int failedPartsCount;
 	
 	public PartedPath(Network network, NetworkPath path, boolean isUp) {
 		int allRegenerators = 0;
@@ -28,7 +32,7 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 			NetworkNode source = path.get(isUp ? i - 1 : path.size() - i);
 			NetworkNode destination = path.get(isUp ? i : path.size() - i - 1);
 			if (i > 1) {
-				occupiedRegeneratorsPercentage += source.occupiedRegenerators;
+				occupiedRegeneratorsPercentage += network.getOccupiedRegenerators(source);
 				allRegenerators += source.regeneratorsCount;
 			}
 			parts.add(new PathPart(source, destination, network.getLink(source, destination).getLength(), 
@@ -39,6 +43,7 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 		} else{
 			occupiedRegeneratorsPercentage = 1;
 		}
+		this.network = network;
 		this.isUp = isUp;
 		this.path = path;
 	}
@@ -64,7 +69,7 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 	
 	public void mergeRegeneratorlessParts() {
 		for (int i = 1; i < parts.size(); i++)
-			if (!parts.get(i).getSource().hasFreeRegenerators()) {
+			if (!network.hasFreeRegenerators(parts.get(i).getSource())) {
 				parts.get(i - 1).merge(parts.get(i));
 				parts.remove(i);
 				i--;
@@ -74,7 +79,7 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 	public void mergeIdenticalModulation(int volume) {
 		for (int i = 1; i < parts.size(); i++)
 			if (parts.get(i - 1).getModulation() == parts.get(i).getModulation() && parts.get(i - 1).getLength() +
-					parts.get(i).getLength() <= parts.get(i).getModulation().modulationDistances[volume]) {
+					parts.get(i).getLength() <= network.getModulationProfile().getDistance(parts.get(i).getModulation(), volume)) {
 				parts.get(i - 1).merge(parts.get(i));
 				parts.remove(i);
 				i--;
@@ -105,23 +110,26 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 	public boolean allocate(Demand demand) {
 		for (PathPart part : parts) {
 			if (part != parts.get(0)){
-				part.source.occupyRegenerators(1, false);
+				network.occupyRegenerators(part.source, 1, false);
 			}
 			
 		}
 		
-		for (PathPart part : parts) {
-			Spectrum slices = part.getSlices();
+		SpectrumIntersection slices = network.getSpectrumIntersection();
+		for (int i = 0; i < parts.size(); i++) {
+			PathPart part = parts.get(i);
 			int slicesCount, offset;
 			if (demand.getWorkingPath() == null) {
-				slicesCount = part.getModulation().slicesConsumption[(int) Math.ceil(demand.getVolume() / 10) - 1];
-				offset = slices.canAllocateWorking(slicesCount);
-				if (offset == -1) return false;
+				slicesCount = network.getModulationProfile().getSlicesConsumption(part.getModulation(), (int) Math.ceil(demand.getVolume() / 10) - 1);
+				offset = slices.canAllocateWorking(part.spectra, slicesCount, network.getWorkingSpectrumAssignmentPolicy(),
+						network.getSpectrumAssigner());
+				if (offset == -1) return allocationFailed(i);
 				part.segment = new WorkingSpectrumSegment(offset, slicesCount, demand);
 			} else {
-				slicesCount = part.getModulation().slicesConsumption[(int) Math.ceil(demand.getSqueezedVolume() / 10) - 1];
-				offset = slices.canAllocateBackup(demand, slicesCount);
-				if (offset == -1) return false;
+				slicesCount = network.getModulationProfile().getSlicesConsumption(part.getModulation(), (int) Math.ceil(demand.getSqueezedVolume() / 10) - 1);
+				offset = slices.canAllocateBackup(part.spectra, demand, slicesCount, network.getBackupSpectrumAssignmentPolicy(),
+						network.getSpectrumAssigner());
+				if (offset == -1) return allocationFailed(i);
 				part.segment = new BackupSpectrumSegment(offset, slicesCount, demand);
 			}
 			for	(Spectrum slice : part.spectra) slice.allocate(part.segment);
@@ -129,6 +137,28 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 
 		return true;
 	}
+
+	/**
+	 * A failed allocation keeps the regenerators and the segments of the parts before the failed one,
+	 * the network remembers the path so they can be released before the demand is allocated again
+	 * @return false
+	 */
+	private boolean allocationFailed(int allocatedPartsCount) {
+		failedPartsCount = allocatedPartsCount;
+		network.failedAllocations.add(this);
+		return false;
+	}
+
+	/**
+	 * Releases what the failed allocation of the path for the demand kept
+	 */
+	void releaseFailedAllocation(Demand demand) {
+		for (int i = 1; i < parts.size(); i++)
+			network.occupyRegenerators(parts.get(i).source, -1, true);
+		for (int i = 0; i < failedPartsCount; i++)
+			for (Spectrum slices : parts.get(i).spectra)
+				slices.deallocate(demand, parts.get(i).segment.getRange());
+	}
 	
 	public void toWorking(Demand demand) {
 		for (PathPart part : parts) {
@@ -140,7 +170,7 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 	public void deallocate(Demand demand) {
 		for (PathPart part : parts) {
 			if (part != parts.get(0)){
-				part.source.occupyRegenerators(-1, true);
+				network.occupyRegenerators(part.source, -1, true);
 			}
 			for	(Spectrum slices : part.spectra) slices.deallocate(demand);
 		}
@@ -163,6 +193,31 @@ public class PartedPath implements Comparable<PartedPath>, Iterable<PathPart> {
 		return path;
 	}
 	
+	boolean isUp() {
+		return isUp;
+	}
+	
+	/**
+	 * Rebuilds the parts of a path allocated before a checkpoint, without touching the spectrum nor the regenerators
+	 * @param linksCounts number of links of every part
+	 * @param offsets first slice of the segment of every part
+	 * @param slicesCounts number of slices of the segment of every part
+	 * @param backup whether the path is the backup path of the demand
+	 */
+	void restoreParts(Demand demand, int[] linksCounts, Modulation[] modulations, int[] offsets, int[] slicesCounts, boolean backup) {
+		for (int i = 0; i < linksCounts.length; i++) {
+			PathPart part = parts.get(i);
+			part.setModulation(modulations[i], 0);
+			for (int j = 1; j < linksCounts[i]; j++) {
+				PathPart next = parts.remove(i + 1);
+				next.setModulation(modulations[i], 0);
+				part.merge(next);
+			}
+			part.segment = backup ? new BackupSpectrumSegment(offsets[i], slicesCounts[i], demand)
+					: new WorkingSpectrumSegment(offsets[i], slicesCounts[i], demand);
+		}
+	}
+	
 	@Override
 	public Iterator<PathPart> iterator() {
 		return parts.iterator();
@@ -2,6 +2,7 @@ package ca.bcit.net;
 
 import ca.bcit.net.spectrum.AllocatableSpectrumSegment;
 import ca.bcit.net.spectrum.Spectrum;
+import ca.bcit.utils.IntegerRange;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -60,13 +61,6 @@ public class PathPart {
 		return occupied / all;
 	}
 	
-	public Spectrum getSlices() {
-		Spectrum result = new Spectrum(NetworkLink.NUMBER_OF_SLICES);
-		for (Spectrum slices : this.spectra)
-			result = result.merge(slices);
-		return result;
-	}
-	
 	public void setModulationIfBetter(Modulation modulation, int metric) {
 		if (metric < this.metric) {
 			this.metric = metric;
@@ -82,4 +76,11 @@ public class PathPart {
 	public Modulation getModulation() {
 		return modulation;
 	}
+
+	/**
+	 * @return slices allocated to the part, null if the path was not allocated
+	 */
+	public IntegerRange getSlicesRange() {
+		return segment == null ? null : segment.getRange();
+	}
 }
@@ -1,27 +1,24 @@
 package ca.bcit.net;
 
-import ca.bcit.ApplicationResources;
-import ca.bcit.Settings;
+import ca.bcit.io.EventLog;
 import ca.bcit.io.Logger;
 import ca.bcit.io.SimulationSummary;
-import ca.bcit.io.project.Project;
-import ca.bcit.jfx.components.ResizableCanvas;
-import ca.bcit.jfx.components.TaskReadyProgressBar;
-import ca.bcit.jfx.controllers.MainWindowController;
-import ca.bcit.jfx.controllers.SimulationMenuController;
-import ca.bcit.jfx.tasks.SimulationTask;
 import ca.bcit.net.demand.AnycastDemand;
 import ca.bcit.net.demand.Demand;
 import ca.bcit.net.demand.DemandAllocationResult;
+import ca.bcit.net.demand.DemandStream;
+import ca.bcit.net.demand.TraceDemandStream;
+import ca.bcit.net.demand.TraceRecorder;
+import ca.bcit.net.demand.UnicastDemand;
 import ca.bcit.net.demand.generator.TrafficGenerator;
-import ca.bcit.net.spectrum.Spectrum;
+import ca.bcit.utils.BatchMeans;
+import ca.bcit.utils.ConfidenceInterval;
 import ca.bcit.utils.LocaleUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import javafx.fxml.FXMLLoader;
+import ca.bcit.utils.random.StatefulRandom;
 
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 
@@ -31,10 +28,22 @@ import java.util.*;
 public class Simulation {
 
 	public static final String RESULTS_DATA_DIR_NAME = "results data";
-	private String resultsDataFileName;
+
+	private static final int CHECKPOINT_MAGIC = 0x43454F4E;
+	private static final int CHECKPOINT_VERSION = 6;
+	private static final int LINK_CUTTER_STREAM = 1;
+	private static final int LINK_DESTROYER_STREAM = 2;
+	private static final int SPECTRUM_ASSIGNMENT_STREAM = 3;
+	private static final long CHECKSUM_PRIME = 0x100000001B3L;
 
 	private Network network;
 	private TrafficGenerator generator;
+	private TraceDemandStream trace;
+	private DemandStream<Demand> demands;
+	private File traceRecordingFile;
+	private File eventLogFile;
+	private EventLog.Format eventLogFormat;
+	private EventLog eventLog;
 	private double totalVolume;
 	private double spectrumBlockedVolume;
 	private double regeneratorsBlockedVolume;
@@ -43,7 +52,23 @@ public class Simulation {
 	private double allocations;
 	private double unhandledVolume;
 	private final double[] modulationsUsage = new double[6];
-	private boolean multipleSimulations = false;
+	private final List<SimulationListener> listeners = new ArrayList<>();
+	private volatile boolean cancelled;
+	private StatefulRandom linkCutter;
+	private File checkpointFile;
+	private int checkpointInterval;
+	private double targetRelativeHalfWidth;
+	private int batchSize;
+	private BatchMeans blockedVolumeBatches;
+	private double batchStartTotalVolume;
+	private double batchStartBlockedVolume;
+	private boolean converged;
+	private boolean commonRandomNumbers;
+	private long streamsChecksum;
+	private double externalFragmentationSum;
+	private double entropyFragmentationSum;
+	private int fragmentationSamplesCount;
+	private Defragmenter defragmenter;
 
 	public Simulation(){}
 
@@ -52,270 +77,492 @@ public class Simulation {
 		this.generator = generator;
 	}
 
-	public Simulation(Network network, TrafficGenerator generator, boolean printSummary) {
+	/**
+	 * Creates a simulation replaying the demands of a trace instead of generating them.
+	 * The erlang, seed and replica preservation of the simulation only affect the link failures then.
+	 */
+	public Simulation(Network network, TraceDemandStream trace) {
 		this.network = network;
-		this.generator = generator;
+		this.trace = trace;
 	}
 
-	public Simulation(Network network, TrafficGenerator generator, boolean printSummary, int totalSimulations, int startingErlangValue, int currentErlangValue, int endingErlangValue, int randomSeed, double alpha) {
-		this.network = network;
-		this.generator = generator;
+	public void addListener(SimulationListener listener) {
+		listeners.add(listener);
 	}
 
-	public void simulate(long seed, int demandsCount, double alpha, int erlang, boolean replicaPreservation, SimulationTask task) {
-		SimulationMenuController.finished = false;
-		SimulationMenuController.cancelled = false;
-		clearVolumeValues();
-		
-		//For development set to debug, for release set to info
-		Logger.setLoggerLevel(Logger.LoggerLevel.DEBUG);
-		generator.setErlang(erlang);
-		generator.setSeed(seed);
-		generator.setReplicaPreservation(replicaPreservation);
-		network.setSeed(seed);
-		Random linkCutter = new Random(seed);
-
-		try {
-			ResizableCanvas.getParentController().updateGraph();
-
-			for (; generator.getGeneratedDemandsCount() < demandsCount;) {
-				SimulationMenuController.started = true;
-
-				Demand demand = generator.next();
-
-				// handle the demand for the specific simulation
-				if (linkCutter.nextDouble() < alpha / erlang)
-					for (Demand reallocate : network.cutLink())
-						if (reallocate.reallocate())
-							handleDemand(reallocate);
-						else {
-							linkFailureBlockedVolume += reallocate.getVolume();
-							ResizableCanvas.getParentController().linkFailureBlockedVolume += reallocate.getVolume();
-						}
-				else {
-					handleDemand(demand);
-					if (demand instanceof AnycastDemand)
-						handleDemand(generator.next());
-				}
-
-				network.update();
+	public void removeListener(SimulationListener listener) {
+		listeners.remove(listener);
+	}
 
-				// pause button
-				pause();
+	/**
+	 * Requests the simulation to stop after the demand that is currently processed.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
 
-				// cancel button
-				if (SimulationMenuController.cancelled) {
-					Logger.info(LocaleUtils.translate("simulation_cancelled"));
-					break;
-				}
+	public boolean isCancelled() {
+		return cancelled;
+	}
 
-				task.updateProgress(generator.getGeneratedDemandsCount(), demandsCount);
-			} // loop end here
+	/**
+	 * Makes the simulation save its state into the file every given number of steps, when it is cancelled and when it ends.
+	 * If the file already exists when the simulation starts, the simulation continues from it.
+	 * @param file checkpoint file or null to disable checkpoints
+	 * @param interval number of steps (demands) between checkpoints
+	 */
+	public void setCheckpoint(File file, int interval) {
+		if (file != null && interval <= 0)
+			throw new IllegalArgumentException("checkpoint_interval_must_be_positive");
+		this.checkpointFile = file;
+		this.checkpointInterval = interval;
+	}
 
-			// force call the update again here
-		}
-		catch (NetworkException e) {
-			Logger.info(LocaleUtils.translate("network_exception_label") + " " + LocaleUtils.translate(e.getMessage()));
-			for (; generator.getGeneratedDemandsCount() < demandsCount;) {
-				Demand demand = generator.next();
-				unhandledVolume += demand.getVolume();
+	/**
+	 * Makes the simulation write the demands it generates into a trace, which can be replayed with {@link TraceDemandStream}.
+	 * A simulation continued from a checkpoint would only record the rest of its demands, so checkpoints cannot be used together.
+	 * The trace is written into a temporary file in the same directory and only replaces the file once it is complete.
+	 * @param file trace file or null to disable recording
+	 */
+	public void setTraceRecording(File file) {
+		this.traceRecordingFile = file;
+	}
 
-				if (demand instanceof AnycastDemand)
-					unhandledVolume += generator.next().getVolume();
-				task.updateProgress(generator.getGeneratedDemandsCount(), demandsCount);
-			}
-			totalVolume += unhandledVolume;
-			ResizableCanvas.getParentController().totalVolume += unhandledVolume;
-		}
+	/**
+	 * Makes the simulation log every allocation, blocked demand, release, link cut, backup change and moved lightpath into a file,
+	 * see {@link EventLog}. A simulation continued from a checkpoint only logs the events after the checkpoint.
+	 * @param file log file or null to disable the log
+	 */
+	public void setEventLog(File file, EventLog.Format format) {
+		this.eventLogFile = file;
+		this.eventLogFormat = format;
+	}
 
-		 //wait for internal cleanup after simulation is done
-		network.waitForDemandsDeath();
-		ResizableCanvas.getParentController().stopUpdateGraph();
-		ResizableCanvas.getParentController().resetGraph();
+	/**
+	 * Makes the simulation move working lightpaths to consolidate the free spectrum, see {@link Defragmenter}
+	 * @param trigger when the lightpaths are moved or null to disable the defragmentation
+	 * @param interval steps between periodic runs, or the minimum steps between runs on the threshold
+	 * @param threshold mean external fragmentation of the links that triggers a run
+	 * @param maxMoves maximum number of lightpaths moved in a run
+	 */
+	public void setDefragmentation(Defragmenter.Trigger trigger, int interval, double threshold, int maxMoves) {
+		defragmenter = trigger == null ? null : new Defragmenter(trigger, interval, threshold, maxMoves);
+	}
 
-		// signal GUI menus that simulation is complete
-		SimulationMenuController.finished = true;
-		FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/ca/bcit/jfx/res/views/SimulationMenu.fxml"), Settings.getCurrentResources());
-		SimulationMenuController simulationMenuController = fxmlLoader.<SimulationMenuController>getController();
-		if (simulationMenuController != null)
-			simulationMenuController.disableClearSimulationButton();
+	/**
+	 * Makes the simulation stop before generating all demands once the blocked volume percentage is known precisely enough.
+	 * The percentage is estimated from the means of batches of demands, the batches of the warm-up period are left out.
+	 * @param relativeHalfWidth target half-width of the 95% confidence interval relative to its mean, 0 to always
+	 *                          generate all demands
+	 * @param batchSize number of steps (demands) in a batch
+	 */
+	public void setStoppingRule(double relativeHalfWidth, int batchSize) {
+		if (relativeHalfWidth < 0)
+			throw new IllegalArgumentException("relative_half_width_must_not_be_negative");
+		if (relativeHalfWidth > 0 && batchSize <= 0)
+			throw new IllegalArgumentException("batch_size_must_be_positive");
+		this.targetRelativeHalfWidth = relativeHalfWidth;
+		this.batchSize = relativeHalfWidth > 0 ? batchSize : 0;
+	}
 
-		Logger.info(LocaleUtils.translate("blocked_spectrum_label") + " " + (spectrumBlockedVolume / totalVolume) * 100 + "%");
-		Logger.info(LocaleUtils.translate("blocked_regenerators_label") + " " + (regeneratorsBlockedVolume / totalVolume) * 100 + "%");
-		Logger.info(LocaleUtils.translate("blocked_link_failure_label") + " " + (linkFailureBlockedVolume / totalVolume) * 100 + "%");
+	/**
+	 * Makes simulations with the same seed draw identical arrivals, holding times and link failures whatever
+	 * algorithm allocates the demands, so the results of algorithms can be compared in pairs.
+	 * The failures are drawn from their own streams derived from the seed instead of streams seeded like the traffic,
+	 * and the summary records a checksum of all drawn values to verify that paired simulations saw the same ones.
+	 * The stopping rule cannot be used in this mode, paired simulations have to generate the same number of demands.
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers = commonRandomNumbers;
+	}
 
-		// write the resulting data of a successful simulation to file
-		File resultsDirectory = new File(RESULTS_DATA_DIR_NAME);
-		if (!resultsDirectory.isDirectory())
-			resultsDirectory.mkdir();
-		File resultsProjectDirectory = new File(RESULTS_DATA_DIR_NAME + "/" + ApplicationResources.getProject().getName().toUpperCase());
-		if (isMultipleSimulations())
-			if (!resultsProjectDirectory.isDirectory())
-				resultsProjectDirectory.mkdir();
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-		String json = gson.toJson(new SimulationSummary(generator.getName(), erlang, seed, alpha, demandsCount, totalVolume,
-				spectrumBlockedVolume, regeneratorsBlockedVolume, linkFailureBlockedVolume, unhandledVolume, regsPerAllocation,
-				allocations, network.getDemandAllocationAlgorithm().getName()));
+	/**
+	 * Detaches the event log from the network and waits until it is written. A log whose writing failed is deleted,
+	 * so it is not mistaken for a complete one.
+	 * @param failed whether the simulation already failed, its exception is then not replaced by the failure of the log
+	 */
+	private void closeEventLog(boolean failed) {
+		network.setEventLog(null);
 		try {
-			resultsDataFileName = ApplicationResources.getProject().getName().toUpperCase() +
-					new SimpleDateFormat("_yyyy_MM_dd_HH_mm_ss").format(new Date()) +".json";
-			TaskReadyProgressBar.addResultsDataFileName(resultsDataFileName);
-			FileWriter resultsDataWriter  = new FileWriter(new File(
-					isMultipleSimulations() ? resultsProjectDirectory : resultsDirectory, resultsDataFileName));
-
-			resultsDataWriter.write(json);
-			resultsDataWriter.close();
+			eventLog.close();
 		}
 		catch (IOException e) {
-			e.printStackTrace();
+			if (eventLogFile.delete())
+				Logger.info(LocaleUtils.translate("incomplete_event_log_deleted") + " " + eventLogFile);
+			if (!failed)
+				throw new NetworkException("event_log_could_not_be_written");
+		}
+		finally {
+			eventLog = null;
 		}
+	}
 
-		//Helps slow GUI update between multiple simulations being run back to back
+	/**
+	 * Closes the recorded trace and moves it to the trace file. A trace with fewer demands than the simulation was asked
+	 * for, because it was cancelled or failed, is deleted, so it is not mistaken for a complete one and replayed.
+	 * @param temporary file the trace was written into
+	 * @param failed whether the simulation already failed, its exception is then not replaced by the failure of the trace
+	 */
+	private void closeTraceRecording(TraceRecorder recorder, File temporary, int demandsCount, boolean failed) {
+		boolean complete = !failed && demands.getGeneratedDemandsCount() >= demandsCount;
 		try {
-			Thread.sleep(2000);
+			recorder.close();
+			if (complete)
+				Files.move(temporary.toPath(), traceRecordingFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException e) {
+			complete = false;
+			if (!failed)
+				throw new NetworkException("trace_could_not_be_written");
 		}
-		catch(InterruptedException ex) {
-			Thread.currentThread().interrupt();
+		finally {
+			if (!complete && temporary.delete())
+				Logger.info(LocaleUtils.translate("incomplete_trace_deleted") + " " + traceRecordingFile);
 		}
 	}
 
-	public void simulate(long seed, int demandsCount, double alpha, int erlang, boolean replicaPreservation) {
-		SimulationMenuController.finished = false;
-		SimulationMenuController.cancelled = false;
+	public SimulationSummary simulate(long seed, int demandsCount, double alpha, int erlang, boolean replicaPreservation) {
+		if (commonRandomNumbers && batchSize > 0)
+			throw new IllegalArgumentException("stopping_rule_cannot_be_used_with_common_random_numbers");
+		if (traceRecordingFile != null && (trace != null || checkpointFile != null))
+			throw new IllegalArgumentException("only_generated_demands_without_checkpoints_can_be_recorded");
+		// a simulation stopped by the rule would record fewer demands than it was asked for
+		if (traceRecordingFile != null && batchSize > 0)
+			throw new IllegalArgumentException("trace_recording_cannot_be_used_with_stopping_rule");
+		cancelled = false;
 		clearVolumeValues();
 
-		ResourceBundle resourceBundle = ResourceBundle.getBundle("ca.bcit.bundles.lang", LocaleUtils.getLocaleFromLocaleEnum(Settings.CURRENT_LOCALE));
+		if (trace != null) {
+			if (demandsCount > trace.getArrivalsCount())
+				throw new IllegalArgumentException("trace_is_shorter_than_demands_count");
+			trace.rewind();
+			demands = trace;
+		}
+		else {
+			generator.setErlang(erlang);
+			generator.setSeed(seed);
+			generator.setReplicaPreservation(replicaPreservation);
+			demands = generator;
+		}
+		if (commonRandomNumbers) {
+			network.setSeed(StatefulRandom.deriveSeed(seed, LINK_DESTROYER_STREAM));
+			linkCutter = new StatefulRandom(StatefulRandom.deriveSeed(seed, LINK_CUTTER_STREAM));
+		}
+		else {
+			network.setSeed(seed);
+			linkCutter = new StatefulRandom(seed);
+		}
+		network.setSpectrumAssignmentSeed(StatefulRandom.deriveSeed(seed, SPECTRUM_ASSIGNMENT_STREAM));
 
-		//For development set to debug, for release set to info
-		Logger.setLoggerLevel(Logger.LoggerLevel.DEBUG);
-		generator.setErlang(erlang);
-		generator.setSeed(seed);
-		generator.setReplicaPreservation(replicaPreservation);
-		network.setSeed(seed);
-		Random linkCutter = new Random(seed);
+		if (checkpointFile != null && checkpointFile.exists())
+			try {
+				readCheckpoint(seed, demandsCount, alpha, erlang, replicaPreservation);
+				Logger.info(LocaleUtils.translate("simulation_resumed_from_checkpoint") + " " + checkpointFile);
+			}
+			catch (IOException e) {
+				throw new NetworkException("checkpoint_could_not_be_read");
+			}
 
-		try {
-			ResizableCanvas.getParentController().updateGraph();
+		if (eventLogFile != null)
+			try {
+				if (eventLogFile.getParentFile() != null)
+					eventLogFile.getParentFile().mkdirs();
+				eventLog = new EventLog(eventLogFile, eventLogFormat, network);
+				network.setEventLog(eventLog);
+			}
+			catch (IOException e) {
+				throw new NetworkException("event_log_could_not_be_written");
+			}
 
-			for (; generator.getGeneratedDemandsCount() < demandsCount;) {
-				SimulationMenuController.started = true;
+		TraceRecorder recorder = null;
+		File temporaryTrace = null;
+		if (traceRecordingFile != null)
+			try {
+				File directory = traceRecordingFile.getAbsoluteFile().getParentFile();
+				directory.mkdirs();
+				// simulations of other algorithms may record the same trace at the same time
+				temporaryTrace = File.createTempFile(traceRecordingFile.getName(), ".tmp", directory);
+				recorder = new TraceRecorder(generator, temporaryTrace, network.getNodes().size());
+				demands = recorder;
+			}
+			catch (IOException e) {
+				throw new NetworkException("trace_could_not_be_written");
+			}
+		for (SimulationListener listener : listeners)
+			listener.simulationStarted(this);
 
-				Demand demand = generator.next();
+		boolean failed = true;
+		try {
+			for (; !converged && demands.getGeneratedDemandsCount() < demandsCount;) {
+				Demand demand = nextDemand();
 
 				// handle the demand for the specific simulation
-				if (linkCutter.nextDouble() < alpha / erlang)
+				if (linkCutter.nextDouble() < alpha / erlang) {
+					addToChecksum(-network.getStep() - 1);
 					for (Demand reallocate : network.cutLink())
 						if (reallocate.reallocate())
 							handleDemand(reallocate);
 						else {
 							linkFailureBlockedVolume += reallocate.getVolume();
-							ResizableCanvas.getParentController().linkFailureBlockedVolume += reallocate.getVolume();
+							if (eventLog != null)
+								eventLog.dropped(network.getStep(), reallocate);
 						}
+				}
 				else {
 					handleDemand(demand);
 					if (demand instanceof AnycastDemand)
-						handleDemand(generator.next());
+						handleDemand(nextDemand());
 				}
 
 				network.update();
+				double meanExternalFragmentation = network.getMeanExternalFragmentation();
+				if (defragmenter != null)
+					defragmenter.onStep(network, meanExternalFragmentation);
+				externalFragmentationSum += meanExternalFragmentation;
+				entropyFragmentationSum += network.getMeanEntropyFragmentation();
+				fragmentationSamplesCount++;
+
+				if (batchSize > 0 && network.getStep() % batchSize == 0 && addBatch()) {
+					Logger.info(LocaleUtils.translate("simulation_converged"));
+					break;
+				}
 
-				// pause button
-				pause();
+				for (SimulationListener listener : listeners)
+					listener.simulationProgressed(this, demands.getGeneratedDemandsCount(), demandsCount);
 
-				// cancel button
-				if (SimulationMenuController.cancelled) {
+				if (cancelled) {
 					Logger.info(LocaleUtils.translate("simulation_cancelled"));
 					break;
 				}
-
-			} // loop end here
-
-			// force call the update again here
+				if (checkpointFile != null && network.getStep() % checkpointInterval == 0)
+					writeCheckpoint(seed, demandsCount, alpha, erlang, replicaPreservation);
+			}
+			failed = false;
 		}
 		catch (NetworkException e) {
 			Logger.info(LocaleUtils.translate("network_exception_label") + " " + LocaleUtils.translate(e.getMessage()));
-			for (; generator.getGeneratedDemandsCount() < demandsCount;) {
-				Demand demand = generator.next();
+			for (; demands.getGeneratedDemandsCount() < demandsCount;) {
+				Demand demand = nextDemand();
 				unhandledVolume += demand.getVolume();
 
 				if (demand instanceof AnycastDemand)
-					unhandledVolume += generator.next().getVolume();
+					unhandledVolume += nextDemand().getVolume();
+				for (SimulationListener listener : listeners)
+					listener.simulationProgressed(this, demands.getGeneratedDemandsCount(), demandsCount);
 			}
 			totalVolume += unhandledVolume;
-			ResizableCanvas.getParentController().totalVolume += unhandledVolume;
+			failed = false;
 		}
-		String algorithm = network.getDemandAllocationAlgorithm().getName();
+		finally {
+			try {
+				if (eventLog != null)
+					closeEventLog(failed);
+			}
+			finally {
+				if (recorder != null)
+					closeTraceRecording(recorder, temporaryTrace, demandsCount, failed);
+			}
+		}
+
+		if (checkpointFile != null)
+			writeCheckpoint(seed, demandsCount, alpha, erlang, replicaPreservation);
 
 		//wait for internal cleanup after simulation is done
 		network.waitForDemandsDeath();
-		ResizableCanvas.getParentController().stopUpdateGraph();
-		ResizableCanvas.getParentController().resetGraph();
-
-		// signal GUI menus that simulation is complete
-		SimulationMenuController.finished = true;
-		FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/ca/bcit/jfx/res/views/SimulationMenu.fxml"), resourceBundle);
-		SimulationMenuController simulationMenuController = fxmlLoader.<SimulationMenuController>getController();
-		if (simulationMenuController != null)
-			simulationMenuController.disableClearSimulationButton();
 
 		Logger.info(LocaleUtils.translate("blocked_spectrum_label") + " " + (spectrumBlockedVolume / totalVolume) * 100 + "%");
 		Logger.info(LocaleUtils.translate("blocked_regenerators_label") + " " + (regeneratorsBlockedVolume / totalVolume) * 100 + "%");
 		Logger.info(LocaleUtils.translate("blocked_link_failure_label") + " " + (linkFailureBlockedVolume / totalVolume) * 100 + "%");
 
-		// write the resulting data of a successful simulation to file
-		File resultsDirectory = new File(RESULTS_DATA_DIR_NAME);
-		if (!resultsDirectory.isDirectory())
-			resultsDirectory.mkdir();
-		File resultsProjectDirectory = new File(RESULTS_DATA_DIR_NAME + "/" + ApplicationResources.getProject().getName().toUpperCase());
-		if (isMultipleSimulations())
-			if (!resultsProjectDirectory.isDirectory())
-				resultsProjectDirectory.mkdir();
-		Gson gson = new GsonBuilder().setPrettyPrinting().create();
-		String json = gson.toJson(new SimulationSummary(generator.getName(), erlang, seed, alpha, demandsCount, totalVolume,
+		SimulationSummary summary = new SimulationSummary(getDemandsName(), erlang, seed, alpha, demandsCount, totalVolume,
 				spectrumBlockedVolume, regeneratorsBlockedVolume, linkFailureBlockedVolume, unhandledVolume, regsPerAllocation,
-				allocations, algorithm));
-		try {
-			resultsDataFileName = ApplicationResources.getProject().getName().toUpperCase() +
-					new SimpleDateFormat("_yyyy_MM_dd_HH_mm_ss").format(new Date()) +".json";
-			TaskReadyProgressBar.addResultsDataFileName(resultsDataFileName);
-			FileWriter resultsDataWriter  = new FileWriter(new File(isMultipleSimulations() ? resultsProjectDirectory : resultsDirectory, resultsDataFileName));
-
-			resultsDataWriter.write(json);
-			resultsDataWriter.close();
-		}
-		catch (IOException e) {
-			e.printStackTrace();
+				allocations, network.getDemandAllocationAlgorithm().getName());
+		summary.setSimulatedDemandsCount(demands.getGeneratedDemandsCount());
+		if (fragmentationSamplesCount > 0)
+			summary.setFragmentation(externalFragmentationSum / fragmentationSamplesCount, entropyFragmentationSum / fragmentationSamplesCount);
+		if (defragmenter != null)
+			summary.setDefragmentation(defragmenter.getRunsCount(), defragmenter.getMovesCount(), defragmenter.getRunsMillis(),
+					defragmenter.getFragmentationReduction(), defragmenter.getRecoveredVolume());
+		summary.setSpectrumAssignment(network.getWorkingSpectrumAssignmentPolicy().getName(),
+				network.getBackupSpectrumAssignmentPolicy().getName());
+		if (commonRandomNumbers)
+			summary.setRandomStreamsChecksum(Long.toHexString(streamsChecksum));
+		if (batchSize > 0) {
+			ConfidenceInterval interval = blockedVolumeBatches.getConfidenceInterval();
+			if (interval != null) {
+				summary.setBlockedVolumeConfidenceInterval(blockedVolumeBatches.getWarmUpCount() * batchSize, interval.getMean(),
+						interval.getHalfWidth(), converged);
+				Logger.info(LocaleUtils.translate("blocked_volume_confidence_interval_label") + " " + interval + "%");
+			}
 		}
 
-		//Helps slow GUI update between multiple simulations being run back to back
+		for (SimulationListener listener : listeners)
+			listener.simulationFinished(this, summary);
+
+		return summary;
+	}
+
+	/**
+	 * Generates the next demand and adds its endpoints, volume and holding time to the checksum of the random streams
+	 */
+	private Demand nextDemand() {
+		Demand demand = demands.next();
+		long value = ((long) demand.getVolume() << 32 | demand.getTTL()) * 31;
+		if (demand instanceof UnicastDemand)
+			value += ((UnicastDemand) demand).getSource().getID() << 16 | ((UnicastDemand) demand).getDestination().getID();
+		else
+			value += ((AnycastDemand) demand).getClient().getID() << 1 | (demand instanceof AnycastDemand.Upstream ? 1 : 0);
+		addToChecksum(value);
+		return demand;
+	}
+
+	/**
+	 * Mixes a drawn value into the checksum of the random streams (FNV-1a over whole values)
+	 */
+	private void addToChecksum(long value) {
+		streamsChecksum = (streamsChecksum ^ value) * CHECKSUM_PRIME;
+	}
+
+	/**
+	 * Closes the current batch of the blocked volume percentage
+	 * @return whether the confidence interval of the percentage is narrow enough
+	 */
+	private boolean addBatch() {
+		double blockedVolume = spectrumBlockedVolume + regeneratorsBlockedVolume + linkFailureBlockedVolume;
+		double batchVolume = totalVolume - batchStartTotalVolume;
+		blockedVolumeBatches.add(batchVolume == 0 ? 0 : (blockedVolume - batchStartBlockedVolume) / batchVolume * 100);
+		batchStartTotalVolume = totalVolume;
+		batchStartBlockedVolume = blockedVolume;
+		converged = blockedVolumeBatches.hasConverged(targetRelativeHalfWidth);
+		return converged;
+	}
+
+	/**
+	 * Writes the state of the simulation, its traffic generator and its network into the checkpoint file.
+	 * The file is replaced only once the new checkpoint is complete.
+	 */
+	private void writeCheckpoint(long seed, int demandsCount, double alpha, int erlang, boolean replicaPreservation) {
+		File file = new File(checkpointFile.getPath() + ".tmp");
 		try {
-			Thread.sleep(2000);
+			if (checkpointFile.getParentFile() != null)
+				checkpointFile.getParentFile().mkdirs();
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+				out.writeInt(CHECKPOINT_MAGIC);
+				out.writeInt(CHECKPOINT_VERSION);
+				out.writeUTF(network.getDemandAllocationAlgorithm().getKey());
+				out.writeUTF(getDemandsName());
+				out.writeLong(seed);
+				out.writeInt(demandsCount);
+				out.writeDouble(alpha);
+				out.writeInt(erlang);
+				out.writeBoolean(replicaPreservation);
+				out.writeDouble(targetRelativeHalfWidth);
+				out.writeInt(batchSize);
+				out.writeBoolean(commonRandomNumbers);
+				out.writeUTF(network.getWorkingSpectrumAssignmentPolicy().getName());
+				out.writeUTF(network.getBackupSpectrumAssignmentPolicy().getName());
+				out.writeUTF(defragmenter == null ? "" : defragmenter.getTrigger().name());
+				out.writeInt(defragmenter == null ? 0 : defragmenter.getInterval());
+				out.writeDouble(defragmenter == null ? 0 : defragmenter.getThreshold());
+				out.writeInt(defragmenter == null ? 0 : defragmenter.getMaxMoves());
+
+				out.writeDouble(totalVolume);
+				out.writeDouble(spectrumBlockedVolume);
+				out.writeDouble(regeneratorsBlockedVolume);
+				out.writeDouble(linkFailureBlockedVolume);
+				out.writeDouble(regsPerAllocation);
+				out.writeDouble(allocations);
+				out.writeDouble(unhandledVolume);
+				for (double usage : modulationsUsage)
+					out.writeDouble(usage);
+				out.writeLong(linkCutter.getState());
+				out.writeLong(streamsChecksum);
+				out.writeDouble(externalFragmentationSum);
+				out.writeDouble(entropyFragmentationSum);
+				out.writeInt(fragmentationSamplesCount);
+				if (defragmenter != null)
+					defragmenter.writeState(out);
+				out.writeDouble(batchStartTotalVolume);
+				out.writeDouble(batchStartBlockedVolume);
+				out.writeInt(blockedVolumeBatches.getCount());
+				for (int i = 0; i < blockedVolumeBatches.getCount(); i++)
+					out.writeDouble(blockedVolumeBatches.get(i));
+
+				if (trace != null)
+					trace.writeState(out);
+				else
+					generator.writeState(out);
+				NetworkCheckpoint.write(network, out);
+			}
+			Files.move(file.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
 		}
-		catch(InterruptedException ex) {
-			Thread.currentThread().interrupt();
+		catch (IOException e) {
+			Logger.info(LocaleUtils.translate("checkpoint_could_not_be_written") + " " + e.getMessage());
 		}
 	}
 
 	/**
-	 * For use during an active simulation only. Place the simulation thread to sleep while pause is active.
+	 * Continues the simulation from the checkpoint file. The generator and network have to be seeded
+	 * and the resources of the network have to be free.
 	 */
-	private void pause() {
-		while (SimulationMenuController.paused) {
-			try {
-				Thread.sleep(10);
-			} catch(InterruptedException ex) {
-				Thread.currentThread().interrupt();
-			}
+	private void readCheckpoint(long seed, int demandsCount, double alpha, int erlang, boolean replicaPreservation) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)))) {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+				throw new IOException("Not a checkpoint file: " + checkpointFile);
+			if (!in.readUTF().equals(network.getDemandAllocationAlgorithm().getKey()) || !in.readUTF().equals(getDemandsName())
+					|| in.readLong() != seed || in.readInt() != demandsCount || in.readDouble() != alpha || in.readInt() != erlang
+					|| in.readBoolean() != replicaPreservation || in.readDouble() != targetRelativeHalfWidth || in.readInt() != batchSize
+					|| in.readBoolean() != commonRandomNumbers
+					|| !in.readUTF().equals(network.getWorkingSpectrumAssignmentPolicy().getName())
+					|| !in.readUTF().equals(network.getBackupSpectrumAssignmentPolicy().getName())
+					|| !in.readUTF().equals(defragmenter == null ? "" : defragmenter.getTrigger().name())
+					|| in.readInt() != (defragmenter == null ? 0 : defragmenter.getInterval())
+					|| in.readDouble() != (defragmenter == null ? 0 : defragmenter.getThreshold())
+					|| in.readInt() != (defragmenter == null ? 0 : defragmenter.getMaxMoves()))
+				throw new NetworkException("checkpoint_was_written_by_a_different_simulation");
+
+			totalVolume = in.readDouble();
+			spectrumBlockedVolume = in.readDouble();
+			regeneratorsBlockedVolume = in.readDouble();
+			linkFailureBlockedVolume = in.readDouble();
+			regsPerAllocation = in.readDouble();
+			allocations = in.readDouble();
+			unhandledVolume = in.readDouble();
+			for (int i = 0; i < modulationsUsage.length; i++)
+				modulationsUsage[i] = in.readDouble();
+			linkCutter.setState(in.readLong());
+			streamsChecksum = in.readLong();
+			externalFragmentationSum = in.readDouble();
+			entropyFragmentationSum = in.readDouble();
+			fragmentationSamplesCount = in.readInt();
+			if (defragmenter != null)
+				defragmenter.readState(in);
+			batchStartTotalVolume = in.readDouble();
+			batchStartBlockedVolume = in.readDouble();
+			for (int i = in.readInt(); i > 0; i--)
+				blockedVolumeBatches.add(in.readDouble());
+			converged = batchSize > 0 && blockedVolumeBatches.hasConverged(targetRelativeHalfWidth);
+
+			NetworkNode[] nodes = NetworkCheckpoint.getNodesByID(network);
+			if (trace != null)
+				trace.readState(in);
+			else
+				generator.readState(in, nodes);
+			NetworkCheckpoint.read(network, in);
 		}
 	}
 
+	/**
+	 * @return name of the traffic generator or of the replayed trace
+	 */
+	private String getDemandsName() {
+		return trace != null ? trace.getName() : generator.getName();
+	}
+
 	/**
 	 * Reset parameters to be used in a new simulation. Called before a set of simulations start.
 	 */
 	private void clearVolumeValues() {
-		MainWindowController mainWindowController = ResizableCanvas.getParentController();
-		Project project = ApplicationResources.getProject();
-		Network network = project.getNetwork();
 		this.totalVolume = 0;
 		this.spectrumBlockedVolume = 0;
 		this.regeneratorsBlockedVolume = 0;
@@ -323,21 +570,18 @@ public class Simulation {
 		this.regsPerAllocation = 0;
 		this.allocations = 0;
 		this.unhandledVolume = 0;
-		mainWindowController.totalVolume = 0;
-		mainWindowController.spectrumBlockedVolume = 0;
-		mainWindowController.regeneratorsBlockedVolume = 0;
-		mainWindowController.linkFailureBlockedVolume = 0;
-		for(NetworkNode n : network.getNodes()){
-			n.clearOccupied();
-			for(NetworkNode n2 : network.getNodes()){
-				if(network.containsLink(n, n2)){
-					NetworkLink networkLink = network.getLink(n, n2);
-					Spectrum spectrum = network.getLinkSlices(n, n2);
-					networkLink.slicesUp = new Spectrum(NetworkLink.NUMBER_OF_SLICES);
-					networkLink.slicesDown = new Spectrum(NetworkLink.NUMBER_OF_SLICES);
-				}
-			}
-		}
+		Arrays.fill(modulationsUsage, 0);
+		this.blockedVolumeBatches = new BatchMeans();
+		this.batchStartTotalVolume = 0;
+		this.batchStartBlockedVolume = 0;
+		this.converged = false;
+		this.streamsChecksum = 0xCBF29CE484222325L;
+		this.externalFragmentationSum = 0;
+		this.entropyFragmentationSum = 0;
+		this.fragmentationSamplesCount = 0;
+		if (defragmenter != null)
+			defragmenter.reset();
+		network.clearResources();
 	}
 
 	/**
@@ -347,16 +591,26 @@ public class Simulation {
 	 */
 	private void handleDemand(Demand demand) {
 		DemandAllocationResult result = network.allocateDemand(demand);
+		if (result.workingPath == null && result.type == DemandAllocationResult.Type.NO_SPECTRUM && defragmenter != null
+				&& defragmenter.onBlocked(network)) {
+			network.releaseFailedAllocations(demand);
+			result = network.allocateDemand(demand);
+			if (result.workingPath != null)
+				defragmenter.onRecovered(demand);
+		}
+		if (eventLog != null)
+			if (result.workingPath == null)
+				eventLog.blocked(network.getStep(), demand, result.type);
+			else
+				eventLog.allocated(network.getStep(), demand);
 
 		if (result.workingPath == null)
 			switch (result.type) {
 			case NO_REGENERATORS:
 				regeneratorsBlockedVolume += demand.getVolume();
-				ResizableCanvas.getParentController().regeneratorsBlockedVolume += demand.getVolume();
 				break;
 			case NO_SPECTRUM:
 				spectrumBlockedVolume += demand.getVolume();
-				ResizableCanvas.getParentController().spectrumBlockedVolume += demand.getVolume();
 				break;
 			default:
 				break;
@@ -375,14 +629,32 @@ public class Simulation {
 			}
 		}
 		totalVolume += demand.getVolume();
-		ResizableCanvas.getParentController().totalVolume += demand.getVolume();
 	}
 
-	public boolean isMultipleSimulations() {
-		return multipleSimulations;
+	public Network getNetwork() {
+		return network;
+	}
+
+	/**
+	 * @return traffic generator of the simulation, null when it replays a trace
+	 */
+	public TrafficGenerator getGenerator() {
+		return generator;
+	}
+
+	public double getTotalVolume() {
+		return totalVolume;
+	}
+
+	public double getSpectrumBlockedVolume() {
+		return spectrumBlockedVolume;
+	}
+
+	public double getRegeneratorsBlockedVolume() {
+		return regeneratorsBlockedVolume;
 	}
 
-	public void setMultipleSimulations(boolean multipleSimulations) {
-		this.multipleSimulations = multipleSimulations;
+	public double getLinkFailureBlockedVolume() {
+		return linkFailureBlockedVolume;
 	}
 }
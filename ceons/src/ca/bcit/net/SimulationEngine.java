@@ -0,0 +1,273 @@
+package ca.bcit.net;
+
+import ca.bcit.graph.Graph;
+import ca.bcit.io.EventLog;
+import ca.bcit.io.PathCache;
+import ca.bcit.io.SimulationSummary;
+import ca.bcit.io.project.EONProjectFileFormat;
+import ca.bcit.io.project.Project;
+import ca.bcit.net.algo.IRMSAAlgorithm;
+import ca.bcit.net.demand.TraceDemandStream;
+import ca.bcit.net.demand.generator.TrafficGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Runs simulations of a project without any user interface. A front-end only subscribes to the
+ * simulations through {@link SimulationListener}s.
+ */
+public class SimulationEngine {
+
+	private final String projectName;
+	private final Network network;
+	private final List<TrafficGenerator> trafficGenerators;
+	private final List<SimulationListener> listeners = new ArrayList<>();
+	private File checkpointsDirectory;
+	private int checkpointInterval;
+	private double targetRelativeHalfWidth;
+	private int batchSize;
+	private boolean commonRandomNumbers;
+	private File traceFile;
+	private File traceRecordingsDirectory;
+	private File eventLogsDirectory;
+	private EventLog.Format eventLogFormat;
+	private Defragmenter.Trigger defragmentationTrigger;
+	private int defragmentationInterval;
+	private double defragmentationThreshold;
+	private int defragmentationMoves;
+
+	public SimulationEngine(Project project) {
+		this(project.getName(), project.getNetwork(), project.getTrafficGenerators());
+	}
+
+	private SimulationEngine(String projectName, Network network, List<TrafficGenerator> trafficGenerators) {
+		this.projectName = projectName;
+		this.network = network;
+		this.trafficGenerators = trafficGenerators;
+	}
+
+	/**
+	 * Loads an .eon project, creates its default traffic generators and calculates the paths of its network, or reads them
+	 * from the file the paths of the project were saved into.
+	 * @param projectFile project to be loaded
+	 * @return engine ready to run simulations of the project
+	 * @see PathCache
+	 */
+	public static SimulationEngine load(File projectFile) throws IOException {
+		return load(projectFile, Graph.DEFAULT_PATHS_LIMIT);
+	}
+
+	/**
+	 * @param pathsLimit number of paths calculated for each pair of nodes
+	 * @see #load(File)
+	 */
+	public static SimulationEngine load(File projectFile, int pathsLimit) throws IOException {
+		Project project = new EONProjectFileFormat().load(projectFile);
+		if (project.getTrafficGenerators().isEmpty())
+			try {
+				project.getTrafficGenerators().addAll(TrafficGenerator.createDefaultGenerators(project.getNetwork()));
+			}
+			catch (NullPointerException e) {
+				throw new NetworkException("topology_should_contain_both_international_and_data_center_node_types");
+			}
+
+		Network network = project.getNetwork();
+		network.setPathsLimit(pathsLimit);
+		network.setMaxPathsCount(PathCache.calculatePaths(network, projectFile, () -> {}));
+		return new SimulationEngine(project);
+	}
+
+	/**
+	 * Creates an engine simulating on a fork of the network, so both engines can run at the same time.
+	 * The fork gets copies of the traffic generators of this engine, no listeners and the same checkpoints, stopping rule, random numbers mode, traces,
+	 * event logs and defragmentation.
+	 * @return engine sharing the topology and paths of this one
+	 */
+	public SimulationEngine fork() {
+		Network fork = network.fork();
+		SimulationEngine engine = new SimulationEngine(projectName, fork, new ArrayList<>());
+		NetworkNode[] nodes = NetworkCheckpoint.getNodesByID(fork);
+		for (TrafficGenerator generator : trafficGenerators)
+			engine.trafficGenerators.add(generator.copy(nodes));
+		engine.checkpointsDirectory = checkpointsDirectory;
+		engine.checkpointInterval = checkpointInterval;
+		engine.targetRelativeHalfWidth = targetRelativeHalfWidth;
+		engine.batchSize = batchSize;
+		engine.commonRandomNumbers = commonRandomNumbers;
+		engine.traceFile = traceFile;
+		engine.traceRecordingsDirectory = traceRecordingsDirectory;
+		engine.eventLogsDirectory = eventLogsDirectory;
+		engine.eventLogFormat = eventLogFormat;
+		engine.defragmentationTrigger = defragmentationTrigger;
+		engine.defragmentationInterval = defragmentationInterval;
+		engine.defragmentationThreshold = defragmentationThreshold;
+		engine.defragmentationMoves = defragmentationMoves;
+		return engine;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	public Network getNetwork() {
+		return network;
+	}
+
+	public List<TrafficGenerator> getTrafficGenerators() {
+		return trafficGenerators;
+	}
+
+	public TrafficGenerator getTrafficGenerator(String name) {
+		for (TrafficGenerator generator : trafficGenerators)
+			if (generator.getName().equalsIgnoreCase(name))
+				return generator;
+
+		return null;
+	}
+
+	public void addListener(SimulationListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Makes every simulation keep a checkpoint in the directory, named after its algorithm, generator, erlang and seed.
+	 * A simulation whose checkpoint already exists continues from it, a finished one only reproduces its summary.
+	 * @param directory directory of the checkpoints or null to disable them
+	 * @param interval number of demands between checkpoints
+	 */
+	public void setCheckpoints(File directory, int interval) {
+		checkpointsDirectory = directory;
+		checkpointInterval = interval;
+	}
+
+	/**
+	 * Makes the simulations stop once their blocked volume percentage is known precisely enough,
+	 * see {@link Simulation#setStoppingRule(double, int)}
+	 */
+	public void setStoppingRule(double relativeHalfWidth, int batchSize) {
+		targetRelativeHalfWidth = relativeHalfWidth;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Makes simulations of different algorithms with the same seed draw the same demands and failures,
+	 * see {@link Simulation#setCommonRandomNumbers(boolean)}
+	 */
+	public void setCommonRandomNumbers(boolean commonRandomNumbers) {
+		this.commonRandomNumbers = commonRandomNumbers;
+	}
+
+	/**
+	 * Makes the simulations replay the demands of a trace instead of using the traffic generator passed to them.
+	 * @param file trace recorded on the same topology or null to generate the demands
+	 */
+	public void setTrace(File file) {
+		traceFile = file;
+	}
+
+	/**
+	 * Makes the simulations record the demands they generate into traces in the directory, named after their generator,
+	 * erlang and seed. The demands do not depend on the algorithm, so an existing trace is kept and not recorded again.
+	 * @param directory directory of the traces or null to disable recording
+	 */
+	public void setTraceRecordings(File directory) {
+		traceRecordingsDirectory = directory;
+	}
+
+	/**
+	 * Makes every simulation write an event log into the directory, named after its algorithm, generator, erlang and seed.
+	 * @param directory directory of the logs or null to disable them
+	 */
+	public void setEventLogs(File directory, EventLog.Format format) {
+		eventLogsDirectory = directory;
+		eventLogFormat = format;
+	}
+
+	/**
+	 * Makes the simulations defragment the spectrum, see {@link Simulation#setDefragmentation(Defragmenter.Trigger, int, double, int)}
+	 */
+	public void setDefragmentation(Defragmenter.Trigger trigger, int interval, double threshold, int maxMoves) {
+		defragmentationTrigger = trigger;
+		defragmentationInterval = interval;
+		defragmentationThreshold = threshold;
+		defragmentationMoves = maxMoves;
+	}
+
+	/**
+	 * Applies the simulation settings to the network, the same way the simulation menu does.
+	 * @param bestPathsCount number of candidate paths
+	 * @param modulations modulations allowed in the simulations
+	 */
+	public void configure(int bestPathsCount, Collection<Modulation> modulations) {
+		if (bestPathsCount > network.getMaxPathsCount() || bestPathsCount <= 0)
+			throw new IllegalArgumentException("number_of_candidate_paths_must_be_less_than_best_paths_count");
+
+		for (Modulation modulation : network.getAllowedModulations())
+			network.disallowModulation(modulation);
+		for (Modulation modulation : modulations)
+			network.allowModulation(modulation);
+
+		network.setBestPathsCount(bestPathsCount);
+		network.setModualtionMetricType(MetricType.DYNAMIC);
+		network.setRegeneratorMetricValue(5);
+		network.setRegeneratorMetricType(MetricType.STATIC);
+	}
+
+	/**
+	 * Runs a single simulation.
+	 */
+	public SimulationSummary run(IRMSAAlgorithm algorithm, TrafficGenerator generator, long seed, double alpha, int erlang,
+			int demandsCount, boolean replicaPreservation) {
+		network.setDemandAllocationAlgorithm(algorithm);
+		Simulation simulation;
+		String demandsName;
+		if (traceFile != null)
+			try {
+				simulation = new Simulation(network, new TraceDemandStream(traceFile, network));
+				demandsName = traceFile.getName();
+			}
+			catch (IOException e) {
+				throw new NetworkException("trace_could_not_be_read");
+			}
+		else {
+			simulation = new Simulation(network, generator);
+			demandsName = generator.getName();
+		}
+		for (SimulationListener listener : listeners)
+			simulation.addListener(listener);
+		simulation.setStoppingRule(targetRelativeHalfWidth, batchSize);
+		simulation.setCommonRandomNumbers(commonRandomNumbers);
+		simulation.setDefragmentation(defragmentationTrigger, defragmentationInterval, defragmentationThreshold, defragmentationMoves);
+		if (checkpointsDirectory != null)
+			simulation.setCheckpoint(new File(checkpointsDirectory, (algorithm.getKey() + "_" + demandsName + "_" + erlang + "_" + seed)
+					.replaceAll("[^A-Za-z0-9_-]+", "_") + ".checkpoint"), checkpointInterval);
+		if (eventLogsDirectory != null)
+			simulation.setEventLog(new File(eventLogsDirectory, (algorithm.getKey() + "_" + demandsName + "_" + erlang + "_" + seed)
+					.replaceAll("[^A-Za-z0-9_-]+", "_") + (eventLogFormat == EventLog.Format.CSV ? ".csv" : ".events")), eventLogFormat);
+		if (traceRecordingsDirectory != null && traceFile == null) {
+			File file = new File(traceRecordingsDirectory, (demandsName + "_" + erlang + "_" + seed).replaceAll("[^A-Za-z0-9_-]+", "_") + ".trace");
+			if (!file.exists())
+				simulation.setTraceRecording(file);
+		}
+
+		return simulation.simulate(seed, demandsCount, alpha, erlang, replicaPreservation);
+	}
+
+	/**
+	 * Runs a simulation for every algorithm, seed and erlang value in the range, in that order.
+	 */
+	public List<SimulationSummary> sweep(List<IRMSAAlgorithm> algorithms, TrafficGenerator generator, List<Long> seeds,
+			int erlangRangeLow, int erlangRangeHigh, int erlangStep, double alpha, int demandsCount, boolean replicaPreservation) {
+		List<SimulationSummary> summaries = new ArrayList<>();
+		for (IRMSAAlgorithm algorithm : algorithms)
+			for (long seed : seeds)
+				for (int erlang = erlangRangeLow; erlang <= erlangRangeHigh; erlang += erlangStep)
+					summaries.add(run(algorithm, generator, seed, alpha, erlang, demandsCount, replicaPreservation));
+
+		return summaries;
+	}
+}
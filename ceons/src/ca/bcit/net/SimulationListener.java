@@ -0,0 +1,32 @@
+package ca.bcit.net;
+
+import ca.bcit.io.SimulationSummary;
+
+/**
+ * Receives notifications from a running simulation. The simulation itself knows nothing about the
+ * interface that displays it, so the GUI (or any other front-end) only subscribes to these events.
+ */
+public interface SimulationListener {
+
+	/**
+	 * Called once all resources of the network were cleared, before the first demand is generated
+	 * @param simulation the simulation that is starting
+	 */
+	default void simulationStarted(Simulation simulation) {}
+
+	/**
+	 * Called after every processed demand. Implementations may block to pause the simulation
+	 * or call {@link Simulation#cancel()} to stop it.
+	 * @param simulation the running simulation
+	 * @param generatedDemands number of demands generated so far
+	 * @param demandsCount total number of demands to be generated
+	 */
+	default void simulationProgressed(Simulation simulation, int generatedDemands, int demandsCount) {}
+
+	/**
+	 * Called when the simulation is over and all of its demands were released
+	 * @param simulation the finished simulation
+	 * @param summary results of the simulation
+	 */
+	default void simulationFinished(Simulation simulation, SimulationSummary summary) {}
+}
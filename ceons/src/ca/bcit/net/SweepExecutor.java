@@ -0,0 +1,149 @@
+package ca.bcit.net;
+
+import ca.bcit.io.SimulationSummary;
+import ca.bcit.net.algo.IRMSAAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the simulations of a sweep concurrently. Every worker thread gets its own {@link SimulationEngine},
+ * so the spectrum, regenerators and traffic generators are never shared between running simulations.
+ */
+public class SweepExecutor {
+
+	/**
+	 * Parameters of a single simulation of the sweep
+	 */
+	public static class Run {
+		public final IRMSAAlgorithm algorithm;
+		public final int generatorIndex;
+		public final long seed;
+		public final double alpha;
+		public final int erlang;
+		public final int demandsCount;
+		public final boolean replicaPreservation;
+
+		public Run(IRMSAAlgorithm algorithm, int generatorIndex, long seed, double alpha, int erlang, int demandsCount,
+				boolean replicaPreservation) {
+			this.algorithm = algorithm;
+			this.generatorIndex = generatorIndex;
+			this.seed = seed;
+			this.alpha = alpha;
+			this.erlang = erlang;
+			this.demandsCount = demandsCount;
+			this.replicaPreservation = replicaPreservation;
+		}
+	}
+
+	private final Callable<SimulationEngine> workerFactory;
+	private final int threadsCount;
+	private final List<SimulationListener> listeners = new ArrayList<>();
+	private final ThreadLocal<SimulationEngine> workers = new ThreadLocal<>();
+	private volatile boolean cancelled;
+
+	/**
+	 * @param workerFactory creates a configured engine with its own network for every worker thread
+	 * @param threadsCount maximal number of simulations running at the same time
+	 */
+	public SweepExecutor(Callable<SimulationEngine> workerFactory, int threadsCount) {
+		if (threadsCount <= 0)
+			throw new IllegalArgumentException("threads_count_must_be_positive");
+		this.workerFactory = workerFactory;
+		this.threadsCount = threadsCount;
+	}
+
+	public SweepExecutor(Callable<SimulationEngine> workerFactory) {
+		this(workerFactory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates the runs for every algorithm, seed and erlang value in the range, in that order.
+	 */
+	public static List<Run> createRuns(List<IRMSAAlgorithm> algorithms, int generatorIndex, List<Long> seeds, int erlangRangeLow,
+			int erlangRangeHigh, int erlangStep, double alpha, int demandsCount, boolean replicaPreservation) {
+		List<Run> runs = new ArrayList<>();
+		for (IRMSAAlgorithm algorithm : algorithms)
+			for (long seed : seeds)
+				for (int erlang = erlangRangeLow; erlang <= erlangRangeHigh; erlang += erlangStep)
+					runs.add(new Run(algorithm, generatorIndex, seed, alpha, erlang, demandsCount, replicaPreservation));
+
+		return runs;
+	}
+
+	/**
+	 * Adds a listener to the simulations of all workers. It is called from the worker threads.
+	 */
+	public void addListener(SimulationListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Stops the running simulations after their current demand and skips the ones that have not started yet.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Runs the simulations and waits for all of them to finish.
+	 * @return summaries in the order of the runs, runs skipped after cancelling are left out
+	 */
+	public List<SimulationSummary> execute(List<Run> runs) throws InterruptedException, ExecutionException {
+		cancelled = false;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadsCount, runs.size())), runnable -> {
+			Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<SimulationSummary>> futures = new ArrayList<>();
+			for (Run run : runs)
+				futures.add(executor.submit(() -> simulate(run)));
+
+			List<SimulationSummary> summaries = new ArrayList<>();
+			for (Future<SimulationSummary> future : futures) {
+				SimulationSummary summary = future.get();
+				if (summary != null)
+					summaries.add(summary);
+			}
+			return summaries;
+		}
+		catch (InterruptedException | ExecutionException e) {
+			cancelled = true;
+			throw e;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private SimulationSummary simulate(Run run) throws Exception {
+		if (cancelled)
+			return null;
+
+		SimulationEngine engine = workers.get();
+		if (engine == null) {
+			engine = workerFactory.call();
+			for (SimulationListener listener : listeners)
+				engine.addListener(listener);
+			engine.addListener(new SimulationListener() {
+				@Override
+				public void simulationProgressed(Simulation simulation, int generatedDemands, int demandsCount) {
+					if (cancelled)
+						simulation.cancel();
+				}
+			});
+			workers.set(engine);
+		}
+
+		return engine.run(run.algorithm, engine.getTrafficGenerators().get(run.generatorIndex), run.seed, run.alpha, run.erlang,
+				run.demandsCount, run.replicaPreservation);
+	}
+}
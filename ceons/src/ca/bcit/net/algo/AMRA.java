@@ -81,7 +81,7 @@ public class AMRA implements IRMSAAlgorithm{
 			// choosing modulations for parts
 			for (PathPart part : path) {
 				for (Modulation modulation : network.getAllowedModulations())
-					if (modulation.modulationDistances[volume] >= part.getLength())
+					if (network.getModulationProfile().getDistance(modulation, volume) >= part.getLength())
 						part.setModulationIfBetter(modulation, calculateModulationMetric(network, part, modulation));
 
 				if (part.getModulation() == null)
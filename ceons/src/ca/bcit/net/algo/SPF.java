@@ -76,7 +76,7 @@ public class SPF implements IRMSAAlgorithm {
             // choosing modulations for parts
             for (PathPart part : path) {
                 for (Modulation modulation : network.getAllowedModulations())
-                    if (modulation.modulationDistances[volume] >= part.getLength()) {
+                    if (network.getModulationProfile().getDistance(modulation, volume) >= part.getLength()) {
                         part.setModulation(modulation, 1);
                         break;
                     }
@@ -11,6 +11,10 @@ public abstract class AnycastDemand extends Demand {
 
 	public static class Upstream extends AnycastDemand {
 
+		public Upstream(NetworkNode client, boolean reallocate, boolean allocateBackup, int volume, int squeezedVolume, int ttl, boolean replicaPreservation) {
+			super(client, reallocate, allocateBackup, volume, squeezedVolume, ttl, replicaPreservation);
+		}
+
 		public Upstream(NetworkNode client, boolean reallocate, boolean allocateBackup, int volume, float squeezeRatio, int ttl, boolean replicaPreservation) {
 			super(client, reallocate, allocateBackup, volume, squeezeRatio, ttl, replicaPreservation);
 		}
@@ -137,6 +141,14 @@ public abstract class AnycastDemand extends Demand {
 		this.replicaPreservation = replicaPreservation;
 	}
 
+	public NetworkNode getClient() {
+		return client;
+	}
+
+	public boolean isReplicaPreservation() {
+		return replicaPreservation;
+	}
+
 	@Override
 	public String toString() {
 		return "AnycastDemand {client: " + client + ", volume: " + getVolume() + ", ttl: " + getTTL() + "}";
@@ -11,11 +11,13 @@ public abstract class Demand {
 	private final boolean allocateBackup;
 	private final int volume;
 	private final int squeezedVolume;
-	private int ttl;
-	private final int initialTTL;
+	private final int ttl;
+	private int expirationStep;
+	long queueKey = -1;
 	
 	PartedPath workingPath;
 	private PartedPath backupPath;
+	private int workingPathChanges;
 
 	public Demand(boolean reallocate, boolean allocateBackup, int volume, int squeezedVolume, int ttl) {
 		this.reallocate = reallocate;
@@ -23,7 +25,6 @@ public abstract class Demand {
 		this.volume = volume;
 		this.squeezedVolume = Math.max(squeezedVolume, 10);
 		this.ttl = ttl;
-		initialTTL = ttl;
 	}
 
 	public Demand(boolean reallocate, boolean allocateBackup, int volume, float squeezeRatio, int ttl) {
@@ -37,6 +38,20 @@ public abstract class Demand {
 	public PartedPath getBackupPath() {
 		return backupPath;
 	}
+
+	/**
+	 * @return bitmap of the links of the working path, see {@link ca.bcit.net.NetworkPath#getLinks()}, null if there is none
+	 */
+	public long[] getWorkingLinks() {
+		return workingPath == null ? null : workingPath.getPath().getLinks();
+	}
+
+	/**
+	 * @return number of times the working path was set, lets bitmaps built from the working links notice a change
+	 */
+	public int getWorkingPathChanges() {
+		return workingPathChanges;
+	}
 	
 	public abstract ArrayList<PartedPath> getCandidatePaths(boolean backup, Network network);
 	
@@ -60,12 +75,26 @@ public abstract class Demand {
 		return ttl;
 	}
 	
-	public void tick() {
-		ttl--;
+	public int getExpirationStep() {
+		return expirationStep;
+	}
+	
+	/**
+	 * Starts the holding time of the demand, it expires TTL steps after the given one
+	 * @param step current step of the simulation
+	 */
+	public void startHolding(int step) {
+		expirationStep = step + Math.max(ttl, 0);
 	}
 	
-	public boolean isDead() {
-		return ttl <= 0;
+	/**
+	 * Sets the paths and holding time of a demand restored from a checkpoint. The paths must already hold their segments.
+	 */
+	public void restore(int expirationStep, PartedPath workingPath, PartedPath backupPath) {
+		this.expirationStep = expirationStep;
+		this.workingPath = workingPath;
+		this.backupPath = backupPath;
+		workingPathChanges++;
 	}
 	
 	public boolean isDisjoint(Demand other) {
@@ -76,6 +105,7 @@ public abstract class Demand {
 		if (workingPath == null)
 			if (path.allocate(this)) {
 				this.workingPath = path;
+				workingPathChanges++;
 				return true;
 			}
 			else
@@ -95,10 +125,11 @@ public abstract class Demand {
 
 		if (backupPath == null) {
 			workingPath = null;
-			this.ttl = initialTTL;
+			workingPathChanges++;
 			return false;
 		}
 		workingPath = backupPath;
+		workingPathChanges++;
 		backupPath = null;
 		workingPath.toWorking(this);
 		return true;
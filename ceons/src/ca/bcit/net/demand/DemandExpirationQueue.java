@@ -0,0 +1,183 @@
+package ca.bcit.net.demand;
+
+import ca.bcit.io.EventLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Allocated demands ordered by the step in which they expire. Each step only touches the demands
+ * that actually expire in it instead of ticking every allocated demand.
+ */
+public class DemandExpirationQueue {
+
+	/** Binary min-heap of (expiration step << 32 | sequence number) keys, the sequence keeps allocation order within a step */
+	private long[] keys = new long[64];
+	private Demand[] demands = new Demand[64];
+	private int size;
+	private int liveCount;
+	private int sequence;
+	private int step;
+	private EventLog eventLog;
+
+	/**
+	 * @param eventLog log of the released demands or null
+	 */
+	public void setEventLog(EventLog eventLog) {
+		this.eventLog = eventLog;
+	}
+
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * Number of allocated demands that have not expired nor been removed yet
+	 */
+	public int size() {
+		return liveCount;
+	}
+
+	public boolean isEmpty() {
+		return liveCount == 0;
+	}
+
+	/**
+	 * Adds a demand that was allocated in the current step, it expires after its TTL
+	 */
+	public void add(Demand demand) {
+		if (demand.queueKey != -1)
+			remove(demand);
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			demands = Arrays.copyOf(demands, size * 2);
+		}
+		long key = (long) demand.getExpirationStep() << 32 | (sequence++ & 0xFFFFFFFFL);
+		demand.queueKey = key;
+		siftUp(size++, key, demand);
+		liveCount++;
+	}
+
+	/**
+	 * Removes a demand before it expires, e.g. when it has lost its working path. The entry is dropped lazily.
+	 */
+	public void remove(Demand demand) {
+		if (demand.queueKey == -1)
+			return;
+		demand.queueKey = -1;
+		liveCount--;
+	}
+
+	/**
+	 * Deallocates all demands expiring in the current step and moves to the next one
+	 */
+	public void advance() {
+		while (size > 0 && (int) (keys[0] >>> 32) <= step)
+			release(poll());
+		step++;
+	}
+
+	/**
+	 * Deallocates all remaining demands in the order of their expiration and starts over from step 0
+	 */
+	public void drain() {
+		while (size > 0)
+			release(poll());
+		liveCount = 0;
+		sequence = 0;
+		step = 0;
+	}
+
+	/**
+	 * @return demands that have not expired nor been removed yet, in the order in which they expire
+	 */
+	public List<Demand> getDemands() {
+		List<Integer> live = new ArrayList<>(liveCount);
+		for (int i = 0; i < size; i++)
+			if (demands[i].queueKey == keys[i])
+				live.add(i);
+		live.sort(Comparator.comparingLong(i -> keys[i]));
+
+		List<Demand> result = new ArrayList<>(live.size());
+		for (int i : live)
+			result.add(demands[i]);
+		return result;
+	}
+
+	/**
+	 * Replaces the content of the queue, e.g. when a checkpoint is restored
+	 * @param step current step
+	 * @param demands demands in the order in which they expire
+	 */
+	public void restore(int step, List<Demand> demands) {
+		for (int i = 0; i < size; i++) {
+			this.demands[i].queueKey = -1;
+			this.demands[i] = null;
+		}
+		size = 0;
+		liveCount = 0;
+		sequence = 0;
+		for (Demand demand : demands)
+			add(demand);
+		this.step = step;
+	}
+
+	private void release(Demand demand) {
+		if (demand != null) {
+			demand.deallocate();
+			if (eventLog != null)
+				eventLog.released(step, demand);
+		}
+	}
+
+	/**
+	 * @return the demand on top of the heap or null if it was removed before
+	 */
+	private Demand poll() {
+		long key = keys[0];
+		Demand demand = demands[0];
+		size--;
+		long lastKey = keys[size];
+		Demand last = demands[size];
+		demands[size] = null;
+		if (size > 0)
+			siftDown(0, lastKey, last);
+
+		if (demand.queueKey != key)
+			return null;
+		demand.queueKey = -1;
+		liveCount--;
+		return demand;
+	}
+
+	private void siftUp(int i, long key, Demand demand) {
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key)
+				break;
+			keys[i] = keys[parent];
+			demands[i] = demands[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		demands[i] = demand;
+	}
+
+	private void siftDown(int i, long key, Demand demand) {
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && keys[child + 1] < keys[child])
+				child++;
+			if (key <= keys[child])
+				break;
+			keys[i] = keys[child];
+			demands[i] = demands[child];
+			i = child;
+		}
+		keys[i] = key;
+		demands[i] = demand;
+	}
+}
@@ -0,0 +1,132 @@
+package ca.bcit.net.demand;
+
+import ca.bcit.net.Network;
+import ca.bcit.net.NetworkNode;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Replays the demands of a binary trace written by {@link TraceRecorder}. The file is memory-mapped and every record has
+ * the same size, so replaying costs no random numbers and a position can be restored directly.
+ * A trace holds at most {@code Integer.MAX_VALUE} bytes, i.e. about 100 million demands.
+ */
+public class TraceDemandStream implements DemandStream<Demand> {
+
+	static final int MAGIC = 0x43455452;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 12;
+	/** type and flags, source or client, destination, volume, squeezed volume, TTL and arrival index */
+	static final int RECORD_SIZE = 1 + 2 + 2 + 4 + 4 + 4 + 4;
+
+	static final int UNICAST = 0;
+	static final int UPSTREAM = 1;
+	static final int DOWNSTREAM = 2;
+	static final int TYPE_MASK = 3;
+	static final int REALLOCATE = 4;
+	static final int ALLOCATE_BACKUP = 8;
+	static final int REPLICA_PRESERVATION = 16;
+
+	private final String name;
+	private final NetworkNode[] nodes;
+	private final ByteBuffer records;
+	private final int recordsCount;
+	private int position;
+	private int generatedDemandsCount;
+
+	/**
+	 * @param file trace recorded on the same topology
+	 * @param network network whose nodes are referred to by their ID in the trace
+	 */
+	public TraceDemandStream(File file, Network network) throws IOException {
+		name = file.getName();
+		nodes = new NetworkNode[network.getNodes().size()];
+		for (NetworkNode node : network.getNodes())
+			nodes[node.getID()] = node;
+
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Trace is too large: " + file);
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new IOException("Not a trace file: " + file);
+		if (buffer.getInt() != nodes.length)
+			throw new IOException("Trace was recorded for a different topology");
+		records = buffer.slice();
+		recordsCount = records.limit() / RECORD_SIZE;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getRecordsCount() {
+		return recordsCount;
+	}
+
+	/**
+	 * @return number of arrivals in the trace, the downstream part of an anycast demand shares the arrival of its upstream part
+	 */
+	public int getArrivalsCount() {
+		return recordsCount == 0 ? 0 : records.getInt((recordsCount - 1) * RECORD_SIZE + RECORD_SIZE - 4) + 1;
+	}
+
+	/**
+	 * Starts the replay from the first demand again
+	 */
+	public void rewind() {
+		position = 0;
+		generatedDemandsCount = 0;
+	}
+
+	@Override
+	public Demand next() {
+		if (position == recordsCount)
+			throw new NoSuchElementException("end_of_trace");
+		int offset = position++ * RECORD_SIZE;
+		int flags = records.get(offset);
+		NetworkNode first = nodes[records.getShort(offset + 1)];
+		int volume = records.getInt(offset + 5);
+		int squeezedVolume = records.getInt(offset + 9);
+		int ttl = records.getInt(offset + 13);
+		generatedDemandsCount = records.getInt(offset + 17) + 1;
+		boolean reallocate = (flags & REALLOCATE) != 0, allocateBackup = (flags & ALLOCATE_BACKUP) != 0;
+
+		switch (flags & TYPE_MASK) {
+		case UNICAST:
+			return new UnicastDemand(first, nodes[records.getShort(offset + 3)], reallocate, allocateBackup, volume, squeezedVolume, ttl);
+		case UPSTREAM:
+			return new AnycastDemand.Upstream(first, reallocate, allocateBackup, volume, squeezedVolume, ttl,
+					(flags & REPLICA_PRESERVATION) != 0);
+		default:
+			return new AnycastDemand.Downstream(first, reallocate, allocateBackup, volume, squeezedVolume, ttl,
+					(flags & REPLICA_PRESERVATION) != 0);
+		}
+	}
+
+	@Override
+	public int getGeneratedDemandsCount() {
+		return generatedDemandsCount;
+	}
+
+	/**
+	 * Writes the position of the replay, see {@link #readState(DataInput)}
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(position);
+		out.writeInt(generatedDemandsCount);
+	}
+
+	public void readState(DataInput in) throws IOException {
+		position = in.readInt();
+		generatedDemandsCount = in.readInt();
+		if (position > recordsCount)
+			throw new IOException("Trace is shorter than the saved position");
+	}
+}
@@ -0,0 +1,66 @@
+package ca.bcit.net.demand;
+
+import java.io.*;
+
+import static ca.bcit.net.demand.TraceDemandStream.*;
+
+/**
+ * Passes the demands of another stream through while writing them into a binary trace,
+ * which {@link TraceDemandStream} replays.
+ */
+public class TraceRecorder implements DemandStream<Demand>, Closeable {
+
+	private final DemandStream<? extends Demand> stream;
+	private final DataOutputStream out;
+
+	/**
+	 * @param stream stream whose demands are recorded
+	 * @param file trace file, replaced if it exists
+	 * @param nodesCount number of nodes of the network, checked when the trace is replayed
+	 */
+	public TraceRecorder(DemandStream<? extends Demand> stream, File file, int nodesCount) throws IOException {
+		this.stream = stream;
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(nodesCount);
+	}
+
+	@Override
+	public Demand next() {
+		Demand demand = stream.next();
+		try {
+			int flags = (demand.reallocate() ? REALLOCATE : 0) | (demand.allocateBackup() ? ALLOCATE_BACKUP : 0);
+			if (demand instanceof UnicastDemand) {
+				out.writeByte(flags | UNICAST);
+				out.writeShort(((UnicastDemand) demand).getSource().getID());
+				out.writeShort(((UnicastDemand) demand).getDestination().getID());
+			}
+			else {
+				AnycastDemand anycast = (AnycastDemand) demand;
+				out.writeByte(flags | (anycast instanceof AnycastDemand.Upstream ? UPSTREAM : DOWNSTREAM)
+						| (anycast.isReplicaPreservation() ? REPLICA_PRESERVATION : 0));
+				out.writeShort(anycast.getClient().getID());
+				out.writeShort(-1);
+			}
+			out.writeInt(demand.getVolume());
+			out.writeInt(demand.getSqueezedVolume());
+			out.writeInt(demand.getTTL());
+			out.writeInt(stream.getGeneratedDemandsCount() - 1);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return demand;
+	}
+
+	@Override
+	public int getGeneratedDemandsCount() {
+		return stream.getGeneratedDemandsCount();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
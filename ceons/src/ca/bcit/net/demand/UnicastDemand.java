@@ -18,6 +18,20 @@ public class UnicastDemand extends Demand {
 		this.destination = destination;
 	}
 
+	public UnicastDemand(NetworkNode source, NetworkNode destination, boolean reallocate, boolean allocateBackup, int volume, int squeezedVolume, int ttl) {
+		super(reallocate, allocateBackup, volume, squeezedVolume, ttl);
+		this.source = source;
+		this.destination = destination;
+	}
+
+	public NetworkNode getSource() {
+		return source;
+	}
+
+	public NetworkNode getDestination() {
+		return destination;
+	}
+
 	@Override
 	public ArrayList<PartedPath> getCandidatePaths(boolean backup, Network network) {
 		ArrayList<PartedPath> paths = new ArrayList<>();
@@ -4,6 +4,9 @@ import ca.bcit.net.NetworkNode;
 import ca.bcit.net.demand.AnycastDemand;
 import ca.bcit.utils.random.RandomVariable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Random;
 
@@ -19,6 +22,17 @@ public class AnycastDemandGenerator extends DemandGenerator<AnycastDemand> {
 		this.client = client;
 	}
 
+	private AnycastDemandGenerator(AnycastDemandGenerator generator, NetworkNode[] nodes) {
+		super(generator);
+		client = generator.client.copy(node -> nodes[node.getID()]);
+		replicaPreservation = generator.replicaPreservation;
+	}
+
+	@Override
+	public AnycastDemandGenerator copy(NetworkNode[] nodes) {
+		return new AnycastDemandGenerator(this, nodes);
+	}
+
 	public void setReplicaPreservation(boolean backupPreservation) {
 		this.replicaPreservation = backupPreservation;
 	}
@@ -30,6 +44,33 @@ public class AnycastDemandGenerator extends DemandGenerator<AnycastDemand> {
 		return seedGenerator;
 	}
 
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeLong(client.getState());
+		out.writeBoolean(downstream != null);
+		if (downstream != null) {
+			out.writeInt(downstream.getClient().getID());
+			out.writeBoolean(downstream.reallocate());
+			out.writeBoolean(downstream.allocateBackup());
+			out.writeInt(downstream.getVolume());
+			out.writeInt(downstream.getSqueezedVolume());
+			out.writeInt(downstream.getTTL());
+			out.writeBoolean(downstream.isReplicaPreservation());
+		}
+	}
+
+	@Override
+	public void readState(DataInput in, NetworkNode[] nodes) throws IOException {
+		super.readState(in, nodes);
+		client.setState(in.readLong());
+		if (in.readBoolean())
+			downstream = new AnycastDemand.Downstream(nodes[in.readInt()], in.readBoolean(), in.readBoolean(), in.readInt(), in.readInt(),
+					in.readInt(), in.readBoolean());
+		else
+			downstream = null;
+	}
+
 	@Override
 	public AnycastDemand next() {
 		AnycastDemand result;
@@ -1,14 +1,19 @@
 package ca.bcit.net.demand.generator;
 
 import ca.bcit.io.YamlSerializable;
+import ca.bcit.net.NetworkNode;
 import ca.bcit.net.demand.Demand;
 import ca.bcit.net.demand.DemandStream;
 import ca.bcit.utils.random.IrwinHallRandomVariable;
 import ca.bcit.utils.random.RandomVariable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.UnaryOperator;
 
 public abstract class DemandGenerator<D extends Demand> implements DemandStream<D>, YamlSerializable {
 
@@ -26,6 +31,20 @@ public abstract class DemandGenerator<D extends Demand> implements DemandStream<
 		this.volume = volume;
 		this.squeezeRatio = squeezeRatio;
 	}
+
+	DemandGenerator(DemandGenerator<D> generator) {
+		reallocate = generator.reallocate.copy(UnaryOperator.identity());
+		allocateBackup = generator.allocateBackup.copy(UnaryOperator.identity());
+		volume = generator.volume.copy(UnaryOperator.identity());
+		squeezeRatio = generator.squeezeRatio.copy(UnaryOperator.identity());
+		ttl = generator.ttl == null ? null : generator.ttl.copy(UnaryOperator.identity());
+	}
+
+	/**
+	 * Creates a generator of the same demands with its own random sequences. The seed has to be set before use.
+	 * @param nodes nodes of the network of the copy by their ID
+	 */
+	public abstract DemandGenerator<D> copy(NetworkNode[] nodes);
 	
 	public Random setSeed(long seed) {
 		Random seedGenerator = new Random(seed);
@@ -46,6 +65,31 @@ public abstract class DemandGenerator<D extends Demand> implements DemandStream<
 	public int getGeneratedDemandsCount() {
 		return generatedDemandsCount;
 	}
+
+	/**
+	 * Writes the position of the generator in its random sequences, see {@link #readState(DataInput, NetworkNode[])}
+	 */
+	public void writeState(DataOutput out) throws IOException {
+		out.writeInt(generatedDemandsCount);
+		out.writeLong(reallocate.getState());
+		out.writeLong(allocateBackup.getState());
+		out.writeLong(volume.getState());
+		out.writeLong(squeezeRatio.getState());
+		out.writeLong(ttl.getState());
+	}
+
+	/**
+	 * Continues the sequences written by {@link #writeState(DataOutput)}. The seed and erlang have to be set before.
+	 * @param nodes nodes of the network by their ID
+	 */
+	public void readState(DataInput in, NetworkNode[] nodes) throws IOException {
+		generatedDemandsCount = in.readInt();
+		reallocate.setState(in.readLong());
+		allocateBackup.setState(in.readLong());
+		volume.setState(in.readLong());
+		squeezeRatio.setState(in.readLong());
+		ttl.setState(in.readLong());
+	}
 	
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	DemandGenerator(Map map) {
@@ -4,6 +4,9 @@ import ca.bcit.net.NetworkNode;
 import ca.bcit.net.demand.UnicastDemand;
 import ca.bcit.utils.random.RandomVariable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Random;
 
@@ -18,6 +21,17 @@ public class UnicastDemandGenerator extends DemandGenerator<UnicastDemand> {
 		this.destination = destination;
 	}
 
+	private UnicastDemandGenerator(UnicastDemandGenerator generator, NetworkNode[] nodes) {
+		super(generator);
+		source = generator.source.copy(node -> nodes[node.getID()]);
+		destination = generator.destination.copy(node -> nodes[node.getID()]);
+	}
+
+	@Override
+	public UnicastDemandGenerator copy(NetworkNode[] nodes) {
+		return new UnicastDemandGenerator(this, nodes);
+	}
+
 	@Override
 	public Random setSeed(long seed) {
 		Random seedGenerator = super.setSeed(seed);
@@ -26,6 +40,20 @@ public class UnicastDemandGenerator extends DemandGenerator<UnicastDemand> {
 		return seedGenerator;
 	}
 
+	@Override
+	public void writeState(DataOutput out) throws IOException {
+		super.writeState(out);
+		out.writeLong(source.getState());
+		out.writeLong(destination.getState());
+	}
+
+	@Override
+	public void readState(DataInput in, NetworkNode[] nodes) throws IOException {
+		super.readState(in, nodes);
+		source.setState(in.readLong());
+		destination.setState(in.readLong());
+	}
+
 	@Override
 	public UnicastDemand next() {
 		int i = 0;
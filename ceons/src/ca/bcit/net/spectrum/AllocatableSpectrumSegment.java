@@ -10,7 +10,10 @@ public abstract class AllocatableSpectrumSegment extends SpectrumSegment {
 	
 	public abstract boolean isOwnedBy(Demand demand);
 	
-	public abstract int getOccupationTimeLeft();
+	/**
+	 * @return step of the simulation in which the segment is released by its demands
+	 */
+	public abstract int getOccupationEnd();
 	
 	public abstract boolean canAllocate(SpectrumSegment other);
 
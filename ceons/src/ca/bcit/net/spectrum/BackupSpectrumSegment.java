@@ -1,10 +1,13 @@
 package ca.bcit.net.spectrum;
 
+import ca.bcit.net.NetworkPath;
 import ca.bcit.net.demand.Demand;
 import ca.bcit.utils.IntegerRange;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
@@ -12,13 +15,20 @@ public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
 	public static final String TYPE = "BACKUP";
 	
 	private final Set<Demand> demands;
+	// union of the working links of the demands, rebuilt when the sum of their working path changes differs
+	private long[] protectedLinks;
+	private int protectedLinksStamp = -1;
 	
 	public BackupSpectrumSegment(int offset, int length, Demand demand) {
 		super(new IntegerRange(offset, length));
-		demands = new HashSet<>();
+		demands = new LinkedHashSet<>();
 		demands.add(demand);
 	}
 	
+	public BackupSpectrumSegment(int offset, int length, Collection<Demand> demands) {
+		this(new IntegerRange(offset, length), new LinkedHashSet<>(demands));
+	}
+	
 	private BackupSpectrumSegment(IntegerRange range, Set<Demand> demands) {
 		super(range);
 		this.demands = demands;
@@ -39,12 +49,12 @@ public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
 	}
 
 	@Override
-	public int getOccupationTimeLeft() {
-		int time = 0;
+	public int getOccupationEnd() {
+		int step = 0;
 		for (Demand demand : demands)
-			if (demand.getTTL() > time)
-				time = demand.getTTL();
-		return time;
+			if (demand.getExpirationStep() > step)
+				step = demand.getExpirationStep();
+		return step;
 	}
 
 	@Override
@@ -55,26 +65,43 @@ public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
 		return ((BackupSpectrumSegment) other).demands.equals(demands);
 	}
 	
-	public boolean isDisjoint(Demand demand) {
-		for (Demand other : demands)
-			if (!demand.isDisjoint(other))
-				return false;
+	/**
+	 * @return bitmap of the working links of the demands, see {@link NetworkPath#getLinks()}, null if a demand has no working path
+	 */
+	private long[] getProtectedLinks() {
+		int stamp = 0;
+		for (Demand demand : demands)
+			stamp += demand.getWorkingPathChanges();
+		if (stamp == protectedLinksStamp)
+			return protectedLinks;
+
+		long[] links = new long[0];
+		for (Demand demand : demands) {
+			long[] workingLinks = demand.getWorkingLinks();
+			if (workingLinks == null) {
+				links = null;
+				break;
+			}
+			if (workingLinks.length > links.length)
+				links = Arrays.copyOf(links, workingLinks.length);
+			for (int i = 0; i < workingLinks.length; i++)
+				links[i] |= workingLinks[i];
+		}
+		protectedLinks = links;
+		protectedLinksStamp = stamp;
+		return links;
+	}
 
-		return true;
+	public boolean isDisjoint(Demand demand) {
+		return !NetworkPath.sharesLinks(demand.getWorkingLinks(), getProtectedLinks());
 	}
 
 	@Override
 	public boolean canAllocate(SpectrumSegment other) {
 		if (other.getType() == FreeSpectrumSegment.TYPE)
 			return true;
-		else if (other.getType() == BackupSpectrumSegment.TYPE) {
-			for (Demand demand1 : demands)
-				for (Demand demand2 : ((BackupSpectrumSegment) other).demands)
-					if (!demand1.isDisjoint(demand2))
-						return false;
-
-			return true;
-		}
+		else if (other.getType() == BackupSpectrumSegment.TYPE)
+			return !NetworkPath.sharesLinks(getProtectedLinks(), ((BackupSpectrumSegment) other).getProtectedLinks());
 		else
 			return false;
 	}
@@ -84,7 +111,7 @@ public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
 		if (other.getType() == FreeSpectrumSegment.TYPE)
 			return clone(range);
 		else if (other.getType() == BackupSpectrumSegment.TYPE) {
-			Set<Demand> demands = new HashSet<>(((BackupSpectrumSegment) other).demands);
+			Set<Demand> demands = new LinkedHashSet<>(((BackupSpectrumSegment) other).demands);
 			demands.addAll(this.demands);
 			return new BackupSpectrumSegment(range, demands);
 		}
@@ -99,35 +126,12 @@ public class BackupSpectrumSegment extends AllocatableSpectrumSegment {
 		if (demands.size() == 1)
 			return new FreeSpectrumSegment(range);
 		else {
-			Set<Demand> demands = new HashSet<>(this.demands);
+			Set<Demand> demands = new LinkedHashSet<>(this.demands);
 			demands.remove(demand);
 			return new BackupSpectrumSegment(range, demands);
 		}
 	}
 
-	@Override
-	public SpectrumSegment merge(IntegerRange range, SpectrumSegment other) {
-		switch(other.getType()) {
-			case FreeSpectrumSegment.TYPE: return clone(range);
-			case BackupSpectrumSegment.TYPE:
-				BackupSpectrumSegment castedOther = (BackupSpectrumSegment) other;
-				Set<Demand> demands;
-				if (castedOther.demands.size() > this.demands.size()) {
-					demands = new HashSet<>(castedOther.demands);
-					demands.addAll(this.demands);
-				}
-				else {
-					demands = new HashSet<>(this.demands);
-					demands.addAll(castedOther.demands);
-				}
-				return new BackupSpectrumSegment(range, demands);
-			case WorkingSpectrumSegment.TYPE:
-				return other.clone(range);
-		}
-
-		return other.merge(range, this);
-	}
-
 	@Override
 	public BackupSpectrumSegment clone(IntegerRange range) {
 		return new BackupSpectrumSegment(range, demands);
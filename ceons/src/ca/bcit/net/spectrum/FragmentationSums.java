@@ -0,0 +1,37 @@
+package ca.bcit.net.spectrum;
+
+/**
+ * Sums of the fragmentation of the spectra of a network, updated by every spectrum whenever its fragmentation changes,
+ * so the means are known without visiting the spectra. The sums are kept in fixed point, so updating them by
+ * differences does not drift and they always equal the sums of the current values.
+ */
+public class FragmentationSums {
+
+	private static final double SCALE = 1L << 40;
+
+	private long external;
+	private long entropy;
+
+	static long toFixedPoint(double value) {
+		return Math.round(value * SCALE);
+	}
+
+	void add(long externalDelta, long entropyDelta) {
+		external += externalDelta;
+		entropy += entropyDelta;
+	}
+
+	/**
+	 * @return sum of the external fragmentation of the spectra, see {@link Spectrum#getExternalFragmentation()}
+	 */
+	public double getExternal() {
+		return external / SCALE;
+	}
+
+	/**
+	 * @return sum of the entropy fragmentation of the spectra, see {@link Spectrum#getEntropyFragmentation()}
+	 */
+	public double getEntropy() {
+		return entropy / SCALE;
+	}
+}
@@ -23,11 +23,6 @@ public class FreeSpectrumSegment extends SpectrumSegment {
 		return other.getType() == FreeSpectrumSegment.TYPE;
 	}
 
-	@Override
-	public SpectrumSegment merge(IntegerRange range, SpectrumSegment other) {
-		return other.clone(range);
-	}
-
 	@Override
 	public SpectrumSegment clone(IntegerRange range) {
 		return new FreeSpectrumSegment(range);
@@ -0,0 +1,148 @@
+package ca.bcit.net.spectrum;
+
+/**
+ * Operations on bitmaps of slices stored in long words, slice i is bit i % 64 of word i / 64.
+ */
+public final class SliceBits {
+
+	private static final long ALL = -1L;
+
+	private SliceBits() {}
+
+	public static long[] create(int slicesCount) {
+		return new long[(slicesCount + 63) >>> 6];
+	}
+
+	/**
+	 * Sets the slices in [from, to)
+	 */
+	public static void set(long[] bits, int from, int to) {
+		if (from >= to)
+			return;
+		int first = from >>> 6, last = (to - 1) >>> 6;
+		long firstMask = ALL << from, lastMask = ALL >>> -to;
+		if (first == last) {
+			bits[first] |= firstMask & lastMask;
+			return;
+		}
+		bits[first] |= firstMask;
+		for (int i = first + 1; i < last; i++)
+			bits[i] = ALL;
+		bits[last] |= lastMask;
+	}
+
+	/**
+	 * Clears the slices in [from, to)
+	 */
+	public static void clear(long[] bits, int from, int to) {
+		if (from >= to)
+			return;
+		int first = from >>> 6, last = (to - 1) >>> 6;
+		long firstMask = ALL << from, lastMask = ALL >>> -to;
+		if (first == last) {
+			bits[first] &= ~(firstMask & lastMask);
+			return;
+		}
+		bits[first] &= ~firstMask;
+		for (int i = first + 1; i < last; i++)
+			bits[i] = 0;
+		bits[last] &= ~lastMask;
+	}
+
+	public static int count(long[] bits) {
+		int count = 0;
+		for (long word : bits)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * @return first set slice in [from, limit) or limit if there is none
+	 */
+	public static int nextSet(long[] bits, int from, int limit) {
+		if (from >= limit)
+			return limit;
+		int i = from >>> 6;
+		long word = bits[i] & (ALL << from);
+		while (word == 0) {
+			if (++i << 6 >= limit)
+				return limit;
+			word = bits[i];
+		}
+		return Math.min((i << 6) + Long.numberOfTrailingZeros(word), limit);
+	}
+
+	/**
+	 * @return first clear slice in [from, limit) or limit if there is none
+	 */
+	public static int nextClear(long[] bits, int from, int limit) {
+		if (from >= limit)
+			return limit;
+		int i = from >>> 6;
+		long word = ~bits[i] & (ALL << from);
+		while (word == 0) {
+			if (++i << 6 >= limit)
+				return limit;
+			word = ~bits[i];
+		}
+		return Math.min((i << 6) + Long.numberOfTrailingZeros(word), limit);
+	}
+
+	/**
+	 * @return last set slice before the given one or -1 if there is none
+	 */
+	public static int previousSet(long[] bits, int before) {
+		if (before <= 0)
+			return -1;
+		int i = (before - 1) >>> 6;
+		long word = bits[i] & (ALL >>> -before);
+		while (word == 0) {
+			if (i-- == 0)
+				return -1;
+			word = bits[i];
+		}
+		return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+	}
+
+	/**
+	 * @return last clear slice before the given one or -1 if there is none
+	 */
+	public static int previousClear(long[] bits, int before) {
+		if (before <= 0)
+			return -1;
+		int i = (before - 1) >>> 6;
+		long word = ~bits[i] & (ALL >>> -before);
+		while (word == 0) {
+			if (i-- == 0)
+				return -1;
+			word = ~bits[i];
+		}
+		return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+	}
+
+	/**
+	 * @return length of the longest run of set slices below the limit
+	 */
+	public static int longestRun(long[] bits, int limit) {
+		int longest = 0;
+		for (int start = nextSet(bits, 0, limit); start < limit; ) {
+			int end = nextClear(bits, start, limit);
+			longest = Math.max(longest, end - start);
+			start = nextSet(bits, end, limit);
+		}
+		return longest;
+	}
+
+	/**
+	 * @return first slice of the lowest run of at least the given number of set slices below the limit, -1 if there is none
+	 */
+	public static int firstRun(long[] bits, int limit, int length) {
+		for (int start = nextSet(bits, 0, limit); start < limit; ) {
+			int end = nextClear(bits, start, limit);
+			if (end - start >= length)
+				return start;
+			start = nextSet(bits, end, limit);
+		}
+		return -1;
+	}
+}
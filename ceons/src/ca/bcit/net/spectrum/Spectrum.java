@@ -7,18 +7,52 @@ import ca.bcit.utils.collections.InsertionSortList;
 
 import java.util.*;
 
+/**
+ * Segments of the slices of a link. Besides the segments, which know their demands, the spectrum keeps bitmaps of
+ * the free slices and of the slices a backup path can share (free or backup), so free gaps are found word by word.
+ * Occupancy and fragmentation of the free slices are updated with every change, only for the runs of free slices around it.
+ * The slices each demand may hold are tracked too, so the segments of a demand are found without scanning the spectrum.
+ * A spectrum is only used by the thread simulating on its network, other threads read a
+ * {@link ca.bcit.net.NetworkSnapshot} of the network instead.
+ */
 public class Spectrum {
-	private List<SpectrumSegment> segments;
+	List<SpectrumSegment> segments;
 	private int slicesCount;
-	private int occupiedSlices;
+	final long[] freeSlices;
+	final long[] sharableSlices;
+	// runs of free slices
+	private int freeSlicesCount;
+	private int freeBlocksCount;
+	private int largestFreeBlock;
+	private final int[] freeBlocksByLength;
+	// sum of length * ln(length) of the runs in fixed point, so it does not drift
+	private long freeBlocksEntropyTerms;
+	// longest run of free and backup slices, -1 until it is needed after a change
+	private int largestSharableBlock = -1;
+	// sums the fragmentation of this spectrum is part of, with the fixed point values last added to them
+	private final FragmentationSums fragmentationSums;
+	private long externalFragmentationTerm;
+	private long entropyFragmentationTerm;
+	// slices [from, to) covering all segments of a demand, kept until the demand is deallocated from the spectrum
+	private final Map<Demand, int[]> demandSlices = new HashMap<>();
+
+	private static final double ENTROPY_TERMS_SCALE = 1L << 32;
 	
 	public Spectrum(int slicesCount) {
+		this(slicesCount, null);
+	}
+
+	/**
+	 * @param fragmentationSums sums kept up to date with the fragmentation of this spectrum, null if there are none
+	 */
+	public Spectrum(int slicesCount, FragmentationSums fragmentationSums) {
 		if (slicesCount <= 0)
 			throw new NetworkException("The number of slices has to be larger than 0!");
 		if (slicesCount % 2 != 0)
 			throw new NetworkException("The number of slices has to be even!");
 		this.slicesCount = slicesCount;
-		segments = Collections.synchronizedList(new ArrayList<SpectrumSegment>() {
+		this.fragmentationSums = fragmentationSums;
+		segments = new ArrayList<SpectrumSegment>() {
 			private static final long serialVersionUID = 5499411539908254723L;
 			@Override
 			public void add(int arg0, SpectrumSegment arg1) {
@@ -32,47 +66,156 @@ public class Spectrum {
 					throw new SpectrumException("Cannot add 0 length");
 				return super.add(e);
 			}
-		});
+		};
 		segments.add(new FreeSpectrumSegment(0, slicesCount));
-	}
-	
-	private Spectrum(List<SpectrumSegment> segments, int slicesCount) {
-		this.segments = segments;
-		this.slicesCount = slicesCount;
-		if (segments.size() != 0 && segments.get(0) instanceof AllocatableSpectrumSegment)
-			occupiedSlices = segments.get(0).getRange().getLength();
-		for (int i = 1; i < segments.size(); i++) {
-			SpectrumSegment segment = segments.get(i);
-			if (segment instanceof AllocatableSpectrumSegment)
-				occupiedSlices += segment.getRange().getLength();
-
-			try {
-				segments.set(i - 1, segment.join(segments.get(i - 1)));
-				segments.remove(i);
-				i--;
-			}
-			catch (SpectrumException e) {}
-		}
+		freeSlices = SliceBits.create(slicesCount);
+		sharableSlices = SliceBits.create(slicesCount);
+		freeBlocksByLength = new int[slicesCount + 1];
+		updateSlices(0, slicesCount);
 	}
 	
 	public List<SpectrumSegment> getSegments() {
 		return Collections.unmodifiableList(segments);
 	}
 	
+	/**
+	 * Replaces all segments, e.g. when a checkpoint is restored
+	 * @param segments segments covering the whole spectrum, ordered by offset
+	 */
+	public void restore(List<SpectrumSegment> segments) {
+		int offset = 0;
+		for (SpectrumSegment segment : segments) {
+			if (segment.getRange().getOffset() != offset)
+				throw new SpectrumException("Restored segments must cover the spectrum without gaps.");
+			offset = segment.getRange().getEndOffset();
+		}
+		if (offset != slicesCount)
+			throw new SpectrumException("Restored segments must cover the spectrum without gaps.");
+
+		this.segments.clear();
+		this.segments.addAll(segments);
+		updateSlices(0, slicesCount);
+		demandSlices.clear();
+		for (SpectrumSegment segment : segments)
+			track(segment);
+	}
+	
 	public int getSlicesCount() {
 		return slicesCount;
 	}
 	
 	public int getOccupiedSlices() {
-		int occupiedSlices = getSlicesCount();
-		if (!segments.isEmpty()) {
-			synchronized (segments) {
-				for (SpectrumSegment segment : getSegments())
-					if (segment != null && segment.getType().equals(FreeSpectrumSegment.TYPE))
-						occupiedSlices -= segment.getRange().getLength();
+		return slicesCount - freeSlicesCount;
+	}
+
+	/**
+	 * @return number of runs of free slices
+	 */
+	public int getFreeBlocksCount() {
+		return freeBlocksCount;
+	}
+
+	/**
+	 * @return number of slices of the longest run of free segments
+	 */
+	public int getLargestFreeBlock() {
+		return largestFreeBlock;
+	}
+
+	/**
+	 * @return 1 - largest free block / free slices, 0 if the free slices form a single block or there are none
+	 */
+	public double getExternalFragmentation() {
+		return freeSlicesCount == 0 ? 0 : 1 - (double) largestFreeBlock / freeSlicesCount;
+	}
+
+	/**
+	 * @return Shannon entropy of the spectrum split into runs of free slices and occupied slices,
+	 * the sum of -(length / slices) * ln(length / slices) over the free runs, 0 for a free or a full spectrum
+	 */
+	public double getEntropyFragmentation() {
+		if (freeSlicesCount == 0)
+			return 0;
+		return (freeSlicesCount * Math.log(slicesCount) - freeBlocksEntropyTerms / ENTROPY_TERMS_SCALE) / slicesCount;
+	}
+
+	/**
+	 * @return number of slices of the longest run of free and backup segments, an upper bound of any backup allocation
+	 */
+	public int getLargestSharableBlock() {
+		if (largestSharableBlock == -1)
+			largestSharableBlock = SliceBits.longestRun(sharableSlices, slicesCount);
+		return largestSharableBlock;
+	}
+
+	/**
+	 * Sets the bits of the slices in [from, to) from the segments covering them
+	 */
+	private void updateSlices(int from, int to) {
+		largestSharableBlock = -1;
+		// runs of free slices touching the range are replaced, the slices around them stay occupied
+		int blocksStart = SliceBits.previousClear(freeSlices, from) + 1, blocksEnd = SliceBits.nextClear(freeSlices, to, slicesCount);
+		countFreeBlocks(blocksStart, blocksEnd, -1);
+		SliceBits.clear(freeSlices, from, to);
+		SliceBits.clear(sharableSlices, from, to);
+		for (int i = indexOf(from); i < segments.size(); i++) {
+			SpectrumSegment segment = segments.get(i);
+			if (segment.range.getOffset() >= to)
+				break;
+			int start = Math.max(from, segment.range.getOffset()), end = Math.min(to, segment.range.getEndOffset());
+			if (segment.getType() == FreeSpectrumSegment.TYPE) {
+				SliceBits.set(freeSlices, start, end);
+				SliceBits.set(sharableSlices, start, end);
 			}
+			else if (segment.getType() == BackupSpectrumSegment.TYPE)
+				SliceBits.set(sharableSlices, start, end);
+		}
+		countFreeBlocks(blocksStart, blocksEnd, 1);
+		while (largestFreeBlock > 0 && freeBlocksByLength[largestFreeBlock] == 0)
+			largestFreeBlock--;
+		if (fragmentationSums != null) {
+			long external = FragmentationSums.toFixedPoint(getExternalFragmentation());
+			long entropy = FragmentationSums.toFixedPoint(getEntropyFragmentation());
+			fragmentationSums.add(external - externalFragmentationTerm, entropy - entropyFragmentationTerm);
+			externalFragmentationTerm = external;
+			entropyFragmentationTerm = entropy;
+		}
+	}
+
+	/**
+	 * Adds the runs of free slices in [from, to) to the statistics of the free blocks or removes them
+	 * @param sign 1 to add, -1 to remove
+	 */
+	private void countFreeBlocks(int from, int to, int sign) {
+		for (int start = SliceBits.nextSet(freeSlices, from, to); start < to; ) {
+			int end = SliceBits.nextClear(freeSlices, start, to);
+			int length = end - start;
+			freeSlicesCount += sign * length;
+			freeBlocksCount += sign;
+			freeBlocksByLength[length] += sign;
+			freeBlocksEntropyTerms += sign * Math.round(length * StrictMath.log(length) * ENTROPY_TERMS_SCALE);
+			if (length > largestFreeBlock)
+				largestFreeBlock = length;
+			start = SliceBits.nextSet(freeSlices, end, to);
+		}
+	}
+
+	/**
+	 * @return index of the segment containing the slice
+	 */
+	int indexOf(int slice) {
+		int low = 0, high = segments.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			IntegerRange range = segments.get(mid).range;
+			if (slice < range.getOffset())
+				high = mid - 1;
+			else if (slice >= range.getEndOffset())
+				low = mid + 1;
+			else
+				return mid;
 		}
-		return occupiedSlices;
+		throw new SpectrumException("Slice is out of spectrum bounds.");
 	}
 	
 	private int firstOverlapIndex(int min, int max, SpectrumSegment segment) {
@@ -98,26 +241,11 @@ public class Spectrum {
 		return true;
 	}
 
-	public Spectrum merge(Spectrum other) {
-		if (slicesCount != other.slicesCount)
-			throw new SpectrumException("Cannot merge spectra that are not equal size.");
-		List<SpectrumSegment> segments = new ArrayList<>();
-		for (int i = 0, j = 0; i < this.segments.size() && j < other.segments.size();) {
-			SpectrumSegment segmentI = this.segments.get(i), segmentJ = other.segments.get(j);
-			if (segmentI.getRange().isOverlapping(segmentJ.getRange()))
-				segments.add(segmentI.merge(segmentI.getRange().multiply(segmentJ.getRange()), segmentJ));
-			if (segmentI.getRange().getEndOffset() < segmentJ.getRange().getEndOffset())
-				i++;
-			else
-				j++;
-		}
-		return new Spectrum(segments, slicesCount);
-	}
-	
 	public void allocate(AllocatableSpectrumSegment segment) {
 		int i = firstOverlapIndex(0, segments.size(), segment);
 		if (i == -1 || segment.getRange().getEndOffset() > slicesCount)
 			throw new SpectrumException("Cannot allocate segment that is out of spectrum bounds!");
+		track(segment);
 
 		SpectrumSegment segmentI = segments.get(i);
 		if (segmentI.getRange().contains(segment.getRange())) {
@@ -127,6 +255,7 @@ public class Spectrum {
 				segments.add(segmentI.clone(range));
 			this.segments.addAll(i, segments);
 			this.segments.remove(i + segments.size());
+			updateSlices(segmentI.getRange().getOffset(), segmentI.getRange().getEndOffset());
 			return;
 		}
 		for (int start = i; i < this.segments.size() && segments.get(i).range.getOffset() < segment.getRange().getEndOffset(); i++) {
@@ -142,21 +271,88 @@ public class Spectrum {
 			}
 			segments.remove(i + 1);
 		}
+		updateSlices(segment.getRange().getOffset(), segment.getRange().getEndOffset());
 	}
 	
+	/**
+	 * Extends the slices of the demands of the segment to its range
+	 */
+	private void track(SpectrumSegment segment) {
+		if (segment instanceof WorkingSpectrumSegment)
+			track(((WorkingSpectrumSegment) segment).getOwner(), segment.range);
+		else if (segment instanceof BackupSpectrumSegment)
+			for (Demand demand : ((BackupSpectrumSegment) segment).getDemands())
+				track(demand, segment.range);
+	}
+
+	private void track(Demand demand, IntegerRange range) {
+		int[] slices = demandSlices.get(demand);
+		if (slices == null)
+			demandSlices.put(demand, new int[] {range.getOffset(), range.getEndOffset()});
+		else {
+			slices[0] = Math.min(slices[0], range.getOffset());
+			slices[1] = Math.max(slices[1], range.getEndOffset());
+		}
+	}
+
 	public void claimBackup(Demand demand) {
-		for (int i = 0; i < segments.size(); i++)
+		int[] slices = demandSlices.get(demand);
+		if (slices == null)
+			return;
+		for (int i = indexOf(slices[0]); i < segments.size() && segments.get(i).range.getOffset() < slices[1]; i++)
 			if (segments.get(i) instanceof BackupSpectrumSegment)
 				if (((AllocatableSpectrumSegment) segments.get(i)).isOwnedBy(demand)) {
 					Set<Demand> demands = ((BackupSpectrumSegment) segments.get(i)).getDemands();
 					segments.set(i, new WorkingSpectrumSegment(segments.get(i).getRange(), demand));
+					updateSlices(segments.get(i).range.getOffset(), segments.get(i).range.getEndOffset());
 					for (Demand other : demands)
-						if (demand != other) other.onBackupFailure();
+						if (demand != other) {
+							other.onBackupFailure();
+							forgetIfReleased(other);
+						}
 				}
 	}
 	
+	/**
+	 * @return whether exactly the range is a working segment of the demand
+	 */
+	public boolean holdsWorking(Demand demand, IntegerRange range) {
+		SpectrumSegment segment = segments.get(indexOf(range.getOffset()));
+		return segment instanceof WorkingSpectrumSegment && ((WorkingSpectrumSegment) segment).isOwnedBy(demand)
+				&& segment.range.equals(range);
+	}
+
 	public void deallocate(Demand demand) {
-		for (int i = 0; i < segments.size(); i++) if (segments.get(i) instanceof AllocatableSpectrumSegment && ((AllocatableSpectrumSegment) segments.get(i)).isOwnedBy(demand)) {
+		int[] slices = demandSlices.remove(demand);
+		if (slices != null)
+			deallocate(demand, slices[0], slices[1]);
+	}
+
+	/**
+	 * Deallocates only the segments of the demand overlapping the range, e.g. the old segment of a moved lightpath.
+	 * The demand is forgotten once it has no segments left in the spectrum.
+	 */
+	public void deallocate(Demand demand, IntegerRange range) {
+		deallocate(demand, range.getOffset(), range.getEndOffset());
+		forgetIfReleased(demand);
+	}
+
+	/**
+	 * Removes the slices of a demand that has no segments left in the spectrum, so it is not kept reachable
+	 */
+	private void forgetIfReleased(Demand demand) {
+		int[] slices = demandSlices.get(demand);
+		if (slices == null)
+			return;
+		for (int i = indexOf(slices[0]); i < segments.size() && segments.get(i).range.getOffset() < slices[1]; i++)
+			if (segments.get(i) instanceof AllocatableSpectrumSegment && ((AllocatableSpectrumSegment) segments.get(i)).isOwnedBy(demand))
+				return;
+		demandSlices.remove(demand);
+	}
+
+	private void deallocate(Demand demand, int from, int to) {
+		for (int i = indexOf(from); i < segments.size() && segments.get(i).range.getOffset() < to; i++) if (segments.get(i) instanceof AllocatableSpectrumSegment
+				&& ((AllocatableSpectrumSegment) segments.get(i)).isOwnedBy(demand)) {
 			segments.set(i, ((AllocatableSpectrumSegment) segments.get(i)).deallocate(demand));
 			if (i != 0)
 				try {
@@ -172,20 +368,48 @@ public class Spectrum {
 					segments.remove(i + 1);
 				}
 				catch (SpectrumException e) {}
+			updateSlices(segments.get(i).range.getOffset(), segments.get(i).range.getEndOffset());
 		}
 	}
 	
+	/**
+	 * @return lowest offset of a free segment long enough for the volume, -1 if there is none
+	 */
 	public int canAllocateWorking(int volume) {
-		for (SpectrumSegment segment : segments)
-			if (segment.getType() == FreeSpectrumSegment.TYPE && segment.getRange().getLength() >= volume)
-				return segment.getRange().getOffset();
-
-		return -1;
+		if (getLargestFreeBlock() < volume)
+			return -1;
+		return SliceBits.firstRun(freeSlices, slicesCount, volume);
 	}
 	
+	/**
+	 * @return highest offset where the volume fits into adjacent free segments and backup segments of demands disjoint
+	 * with the given one, -1 if there is none
+	 */
 	public int canAllocateBackup(Demand demand, int volume) {
+		if (getLargestSharableBlock() < volume)
+			return -1;
+		for (int end = SliceBits.previousSet(sharableSlices, slicesCount) + 1; end > 0;
+				end = SliceBits.previousSet(sharableSlices, end) + 1) {
+			int start = SliceBits.previousClear(sharableSlices, end) + 1;
+			if (end - start >= volume) {
+				// backup segments of the run are only checked if it is not entirely free
+				if (SliceBits.nextClear(freeSlices, start, end) == end)
+					return end - volume;
+				int offset = canAllocateBackup(demand, volume, start, end);
+				if (offset != -1)
+					return offset;
+			}
+			end = start;
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches the segments of a run of free and backup slices from the top
+	 */
+	private int canAllocateBackup(Demand demand, int volume, int start, int end) {
 		int offset = -1, gatheredVolume = 0;
-		for (int i = segments.size() - 1; i >= 0; i--)
+		for (int i = indexOf(end - 1); i >= 0 && segments.get(i).range.getOffset() >= start; i--)
 			if (segments.get(i).getType() == FreeSpectrumSegment.TYPE || segments.get(i).getType() == BackupSpectrumSegment.TYPE && ((BackupSpectrumSegment) segments.get(i)).isDisjoint(demand)) {
 				if (segments.get(i).getRange().getLength() + gatheredVolume >= volume)
 					if (offset == -1)
@@ -0,0 +1,110 @@
+package ca.bcit.net.spectrum;
+
+import java.util.Random;
+
+/**
+ * Chooses where a segment is placed among the slices that can hold it on all links of a path part.
+ */
+public interface SpectrumAssignmentPolicy {
+
+	/**
+	 * @param slices bitmap of the slices available for the segment, see {@link SliceBits}
+	 * @param limit number of slices of the spectrum
+	 * @param volume number of slices of the segment
+	 * @param random source of the random choices of the policy
+	 * @return first slice of the segment, -1 if no run of available slices is long enough
+	 */
+	int select(long[] slices, int limit, int volume, Random random);
+
+	String getName();
+
+	/**
+	 * Policies described in the literature, working segments are placed by first fit and backup segments by last fit
+	 * unless the network says otherwise
+	 */
+	enum Standard implements SpectrumAssignmentPolicy {
+		/** Lowest run that is long enough */
+		FIRST_FIT {
+			@Override
+			public int select(long[] slices, int limit, int volume, Random random) {
+				return SliceBits.firstRun(slices, limit, volume);
+			}
+		},
+		/** Top of the highest run that is long enough */
+		LAST_FIT {
+			@Override
+			public int select(long[] slices, int limit, int volume, Random random) {
+				for (int end = SliceBits.previousSet(slices, limit) + 1; end > 0; ) {
+					int start = SliceBits.previousClear(slices, end) + 1;
+					if (end - start >= volume)
+						return end - volume;
+					end = SliceBits.previousSet(slices, start) + 1;
+				}
+				return -1;
+			}
+		},
+		/** Shortest run that is long enough, the lowest one of them */
+		BEST_FIT {
+			@Override
+			public int select(long[] slices, int limit, int volume, Random random) {
+				int best = -1, bestLength = Integer.MAX_VALUE;
+				for (int start = SliceBits.nextSet(slices, 0, limit); start < limit; ) {
+					int end = SliceBits.nextClear(slices, start, limit);
+					if (end - start >= volume && end - start < bestLength) {
+						if (end - start == volume)
+							return start;
+						best = start;
+						bestLength = end - start;
+					}
+					start = SliceBits.nextSet(slices, end, limit);
+				}
+				return best;
+			}
+		},
+		/** Lowest run of exactly the volume, the lowest run that is long enough if there is none */
+		EXACT_FIT {
+			@Override
+			public int select(long[] slices, int limit, int volume, Random random) {
+				int first = -1;
+				for (int start = SliceBits.nextSet(slices, 0, limit); start < limit; ) {
+					int end = SliceBits.nextClear(slices, start, limit);
+					if (end - start == volume)
+						return start;
+					if (end - start > volume && first == -1)
+						first = start;
+					start = SliceBits.nextSet(slices, end, limit);
+				}
+				return first;
+			}
+		},
+		/** Any position where the segment fits, all of them equally likely */
+		RANDOM_FIT {
+			@Override
+			public int select(long[] slices, int limit, int volume, Random random) {
+				int positions = 0;
+				for (int start = SliceBits.nextSet(slices, 0, limit); start < limit; ) {
+					int end = SliceBits.nextClear(slices, start, limit);
+					positions += Math.max(0, end - start - volume + 1);
+					start = SliceBits.nextSet(slices, end, limit);
+				}
+				if (positions == 0)
+					return -1;
+
+				int chosen = random.nextInt(positions);
+				for (int start = SliceBits.nextSet(slices, 0, limit); ; ) {
+					int end = SliceBits.nextClear(slices, start, limit);
+					int runPositions = Math.max(0, end - start - volume + 1);
+					if (chosen < runPositions)
+						return start + chosen;
+					chosen -= runPositions;
+					start = SliceBits.nextSet(slices, end, limit);
+				}
+			}
+		};
+
+		@Override
+		public String getName() {
+			return name();
+		}
+	}
+}
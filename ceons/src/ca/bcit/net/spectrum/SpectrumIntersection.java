@@ -0,0 +1,77 @@
+package ca.bcit.net.spectrum;
+
+import ca.bcit.net.demand.Demand;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Finds slices that are available on all links of a path part by intersecting the bitmaps of their spectra in
+ * reusable buffers, without building the merged {@link Spectrum} of the links. The offset of a segment among the available
+ * slices is chosen by a {@link SpectrumAssignmentPolicy}.
+ * An instance must not be used by several threads at a time.
+ */
+public class SpectrumIntersection {
+
+	private final int slicesCount;
+	private final long[] free;
+	private final long[] sharable;
+
+	public SpectrumIntersection(int slicesCount) {
+		this.slicesCount = slicesCount;
+		free = SliceBits.create(slicesCount);
+		sharable = SliceBits.create(slicesCount);
+	}
+
+	/**
+	 * @return offset chosen by the policy among the offsets where the volume is free on all links, -1 if there is none
+	 */
+	public int canAllocateWorking(List<Spectrum> spectra, int volume, SpectrumAssignmentPolicy policy, Random random) {
+		// the intersection cannot have a longer gap than any of the links
+		for (Spectrum spectrum : spectra)
+			if (spectrum.getLargestFreeBlock() < volume)
+				return -1;
+		System.arraycopy(spectra.get(0).freeSlices, 0, free, 0, free.length);
+		for (int i = 1; i < spectra.size(); i++) {
+			long[] other = spectra.get(i).freeSlices;
+			for (int j = 0; j < free.length; j++)
+				free[j] &= other[j];
+		}
+		return policy.select(free, slicesCount, volume, random);
+	}
+
+	/**
+	 * @return offset chosen by the policy among the offsets where the volume fits on all links into slices that are free
+	 * or only used by backup paths of demands disjoint with the given one, -1 if there is none
+	 */
+	public int canAllocateBackup(List<Spectrum> spectra, Demand demand, int volume, SpectrumAssignmentPolicy policy, Random random) {
+		for (Spectrum spectrum : spectra)
+			if (spectrum.getLargestSharableBlock() < volume)
+				return -1;
+		System.arraycopy(spectra.get(0).freeSlices, 0, free, 0, free.length);
+		System.arraycopy(spectra.get(0).sharableSlices, 0, sharable, 0, sharable.length);
+		for (int i = 1; i < spectra.size(); i++) {
+			long[] otherFree = spectra.get(i).freeSlices, otherSharable = spectra.get(i).sharableSlices;
+			for (int j = 0; j < free.length; j++) {
+				free[j] &= otherFree[j];
+				sharable[j] &= otherSharable[j];
+			}
+		}
+
+		// leave out the slices of backup segments shared with demands that are not disjoint, runs too short for the volume do not matter
+		for (int start = SliceBits.nextSet(sharable, 0, slicesCount); start < slicesCount; ) {
+			int end = SliceBits.nextClear(sharable, start, slicesCount);
+			if (end - start >= volume && SliceBits.nextClear(free, start, end) != end)
+				for (Spectrum spectrum : spectra)
+					for (int i = spectrum.indexOf(start); i < spectrum.segments.size(); i++) {
+						SpectrumSegment segment = spectrum.segments.get(i);
+						if (segment.range.getOffset() >= end)
+							break;
+						if (segment instanceof BackupSpectrumSegment && !((BackupSpectrumSegment) segment).isDisjoint(demand))
+							SliceBits.clear(sharable, Math.max(start, segment.range.getOffset()), Math.min(end, segment.range.getEndOffset()));
+					}
+			start = SliceBits.nextSet(sharable, end, slicesCount);
+		}
+		return policy.select(sharable, slicesCount, volume, random);
+	}
+}
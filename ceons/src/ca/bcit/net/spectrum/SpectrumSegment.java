@@ -23,8 +23,6 @@ public abstract class SpectrumSegment implements Comparable<SpectrumSegment> {
 		return clone(range.add(other.range));
 	}
 	
-	public abstract SpectrumSegment merge(IntegerRange range, SpectrumSegment other);
-	
 	public abstract SpectrumSegment clone(IntegerRange range);
 	
 	@Override
@@ -33,8 +33,8 @@ public class WorkingSpectrumSegment extends AllocatableSpectrumSegment {
 	}
 
 	@Override
-	public int getOccupationTimeLeft() {
-		return owner.getTTL();
+	public int getOccupationEnd() {
+		return owner.getExpirationStep();
 	}
 
 	@Override
@@ -63,21 +63,6 @@ public class WorkingSpectrumSegment extends AllocatableSpectrumSegment {
 		return new FreeSpectrumSegment(range);
 	}
 
-	@Override
-	public SpectrumSegment merge(IntegerRange range, SpectrumSegment other) {
-		switch(other.getType()) {
-			case FreeSpectrumSegment.TYPE:
-				return clone(range);
-			case BackupSpectrumSegment.TYPE:
-				return clone(range);
-			case WorkingSpectrumSegment.TYPE:
-				WorkingSpectrumSegment castedOther = (WorkingSpectrumSegment) other;
-				return new WorkingSpectrumSegment(range, castedOther.owner.getTTL() > owner.getTTL() ? castedOther.owner : owner);
-		}
-
-		return other.merge(range, this);
-	}
-
 	@Override
 	public WorkingSpectrumSegment clone(IntegerRange range) {
 		return new WorkingSpectrumSegment(range, owner);
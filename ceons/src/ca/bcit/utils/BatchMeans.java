@@ -0,0 +1,96 @@
+package ca.bcit.utils;
+
+import java.util.Arrays;
+
+/**
+ * Means of consecutive batches of an output series. The initial transient is detected with the MSER-5 rule
+ * (marginal standard error rule applied to the batch means) and left out of the confidence interval.
+ */
+public class BatchMeans {
+
+	private static final int MIN_STEADY_BATCHES = 10;
+	// a mean estimated from fewer batches with nonzero means is not trusted, however narrow its interval
+	private static final int MIN_NONZERO_BATCHES = 5;
+
+	private double[] means = new double[16];
+	private int count;
+
+	public void add(double mean) {
+		if (count == means.length)
+			means = Arrays.copyOf(means, count * 2);
+		means[count++] = mean;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double get(int index) {
+		if (index >= count)
+			throw new IndexOutOfBoundsException("batch_index_out_of_range");
+		return means[index];
+	}
+
+	/**
+	 * Chooses the truncation point minimizing the marginal standard error of the remaining batches,
+	 * at most half of the batches and at most half of the batches with nonzero means are truncated,
+	 * so rare nonzero batches are not all cut off as a transient.
+	 * @return number of batches belonging to the warm-up period
+	 */
+	public int getWarmUpCount() {
+		if (count < 2)
+			return 0;
+
+		int nonzero = getNonzeroCount(0);
+		double sum = 0, squaresSum = 0;
+		double bestError = Double.MAX_VALUE;
+		int best = 0, keptNonzero = 0;
+		// iterate truncation points from the largest, accumulating the sums of the kept batches
+		for (int i = count - 1; i >= 0; i--) {
+			sum += means[i];
+			squaresSum += means[i] * means[i];
+			if (means[i] != 0)
+				keptNonzero++;
+			int kept = count - i;
+			if (i > count / 2 || kept < 2 || keptNonzero * 2 < nonzero)
+				continue;
+			double mean = sum / kept;
+			double error = Math.max(0, squaresSum - kept * mean * mean) / ((double) kept * kept);
+			if (error <= bestError) {
+				bestError = error;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return confidence interval of the mean after the warm-up period, null if there are too few batches
+	 */
+	public ConfidenceInterval getConfidenceInterval() {
+		int warmUp = getWarmUpCount();
+		if (count - warmUp < 2)
+			return null;
+		return ConfidenceInterval.of(means, warmUp, count);
+	}
+
+	private int getNonzeroCount(int from) {
+		int nonzero = 0;
+		for (int i = from; i < count; i++)
+			if (means[i] != 0)
+				nonzero++;
+		return nonzero;
+	}
+
+	/**
+	 * @param relativeHalfWidth target half-width of the confidence interval relative to its mean
+	 * @return whether there are enough batches after the warm-up period, enough of them with nonzero means
+	 * and the confidence interval is narrow enough
+	 */
+	public boolean hasConverged(double relativeHalfWidth) {
+		int warmUp = getWarmUpCount();
+		if (count - warmUp < MIN_STEADY_BATCHES || getNonzeroCount(warmUp) < MIN_NONZERO_BATCHES)
+			return false;
+		return getConfidenceInterval().getRelativeHalfWidth() <= relativeHalfWidth;
+	}
+}
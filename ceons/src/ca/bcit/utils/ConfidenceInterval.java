@@ -0,0 +1,89 @@
+package ca.bcit.utils;
+
+/**
+ * Two-sided 95% confidence interval of the mean of independent samples, based on the Student's t distribution.
+ */
+public class ConfidenceInterval {
+
+	// 0.975 quantiles of the t distribution for 1 to 30 degrees of freedom
+	private static final double[] T_QUANTILES = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+			2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060,
+			2.056, 2.052, 2.048, 2.045, 2.042};
+	private static final double Z_QUANTILE = 1.959964;
+
+	private final double mean;
+	private final double halfWidth;
+	private final int samplesCount;
+
+	public ConfidenceInterval(double mean, double halfWidth, int samplesCount) {
+		this.mean = mean;
+		this.halfWidth = halfWidth;
+		this.samplesCount = samplesCount;
+	}
+
+	/**
+	 * @param samples samples of which the ones in [from, to) are used, at least two
+	 */
+	public static ConfidenceInterval of(double[] samples, int from, int to) {
+		int count = to - from;
+		if (count < 2)
+			throw new IllegalArgumentException("at_least_two_samples_are_needed");
+
+		double mean = 0;
+		for (int i = from; i < to; i++)
+			mean += samples[i];
+		mean /= count;
+
+		double variance = 0;
+		for (int i = from; i < to; i++)
+			variance += (samples[i] - mean) * (samples[i] - mean);
+		variance /= count - 1;
+
+		return new ConfidenceInterval(mean, tQuantile(count - 1) * Math.sqrt(variance / count), count);
+	}
+
+	public static ConfidenceInterval of(double[] samples) {
+		return of(samples, 0, samples.length);
+	}
+
+	private static double tQuantile(int degreesOfFreedom) {
+		if (degreesOfFreedom <= T_QUANTILES.length)
+			return T_QUANTILES[degreesOfFreedom - 1];
+		// first Cornish-Fisher correction of the normal quantile
+		return Z_QUANTILE + (Math.pow(Z_QUANTILE, 3) + Z_QUANTILE) / (4.0 * degreesOfFreedom);
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public double getHalfWidth() {
+		return halfWidth;
+	}
+
+	/**
+	 * @return half-width divided by the mean, infinite when the mean is 0, since no relative precision is known then
+	 */
+	public double getRelativeHalfWidth() {
+		if (mean == 0)
+			return Double.POSITIVE_INFINITY;
+		return halfWidth / Math.abs(mean);
+	}
+
+	public int getSamplesCount() {
+		return samplesCount;
+	}
+
+	public double getLowerBound() {
+		return mean - halfWidth;
+	}
+
+	public double getUpperBound() {
+		return mean + halfWidth;
+	}
+
+	@Override
+	public String toString() {
+		return mean + " +/- " + halfWidth;
+	}
+}
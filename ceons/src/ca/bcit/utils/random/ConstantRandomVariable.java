@@ -4,6 +4,7 @@ import ca.bcit.io.YamlSerializable;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 public class ConstantRandomVariable<E> extends RandomVariable<E> implements YamlSerializable {
 
@@ -18,6 +19,11 @@ public class ConstantRandomVariable<E> extends RandomVariable<E> implements Yaml
 		return value;
 	}
 
+	@Override
+	public ConstantRandomVariable<E> copy(UnaryOperator<E> copyValue) {
+		return new ConstantRandomVariable<>(copyValue.apply(value));
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public ConstantRandomVariable(Map map) {
 		value = (E) map.get("value");
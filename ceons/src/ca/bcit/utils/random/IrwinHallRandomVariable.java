@@ -4,6 +4,7 @@ import ca.bcit.io.YamlSerializable;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 public abstract class IrwinHallRandomVariable<N> extends RandomVariable<N> {
 	final int rank;
@@ -33,6 +34,11 @@ public abstract class IrwinHallRandomVariable<N> extends RandomVariable<N> {
 			for (int i = 0; i < rank; i++) result += generator.nextInt(width);
 			return result / rank + offset;
 		}
+
+		@Override
+		public Integer copy(UnaryOperator<java.lang.Integer> copyValue) {
+			return new Integer(offset, offset + width, rank);
+		}
 		
 		@SuppressWarnings("rawtypes")
 		public Integer(Map map) {
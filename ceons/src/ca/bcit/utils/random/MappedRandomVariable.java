@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 
 public class MappedRandomVariable<E> extends RandomVariable<E> implements YamlSerializable {
 	
@@ -65,6 +66,13 @@ public class MappedRandomVariable<E> extends RandomVariable<E> implements YamlSe
 		return entries.get(IntegerRange.binarySearch(ranges, generator.nextInt(upperBound))).getValue();
 	}
 
+	@Override
+	public MappedRandomVariable<E> copy(UnaryOperator<E> copyValue) {
+		List<Entry<E>> distribution = new ArrayList<>();
+		for (Entry<E> entry : entries) distribution.add(new Entry<>(entry.getProbability(), copyValue.apply(entry.getValue())));
+		return new MappedRandomVariable<>(distribution);
+	}
+
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public MappedRandomVariable(Map map) {
 		this((List<Entry<E>>) map.get("distribution"));
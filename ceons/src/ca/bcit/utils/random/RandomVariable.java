@@ -1,19 +1,36 @@
 package ca.bcit.utils.random;
 
-import java.util.Random;
+import java.util.function.UnaryOperator;
 
 public abstract class RandomVariable<E> {
-	Random generator;
-	
+	StatefulRandom generator;
+
 	RandomVariable() {}
-	
+
 	RandomVariable(long seed) {
-		generator = new Random(seed);
+		generator = new StatefulRandom(seed);
 	}
-	
+
 	public void setSeed(long seed) {
-		generator = new Random(seed);
+		generator = new StatefulRandom(seed);
+	}
+
+	/**
+	 * @return state of the generator, restoring it continues the same sequence of values
+	 */
+	public long getState() {
+		return generator.getState();
 	}
-	
+
+	public void setState(long state) {
+		generator.setState(state);
+	}
+
 	public abstract E next();
+
+	/**
+	 * @param copyValue gives the value of the copy for a value of this variable
+	 * @return variable with the same distribution and its own generator, which has to be seeded before use
+	 */
+	public abstract RandomVariable<E> copy(UnaryOperator<E> copyValue);
 }
@@ -0,0 +1,54 @@
+package ca.bcit.utils.random;
+
+import java.util.Random;
+
+/**
+ * Generates the same sequence as {@link Random}, but its state can be read and restored,
+ * e.g. to continue a simulation from a checkpoint.
+ */
+public class StatefulRandom extends Random {
+
+	private static final long serialVersionUID = 3185376232391462170L;
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+
+	// set by setSeed() from the Random constructor, so it must not have an initializer
+	private long state;
+
+	public StatefulRandom(long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long state) {
+		this.state = state & MASK;
+	}
+
+	/**
+	 * Derives the seed of an independent stream from a seed shared by several streams, with the SplitMix64 finalizer.
+	 * @param seed shared seed
+	 * @param stream number of the stream
+	 */
+	public static long deriveSeed(long seed, int stream) {
+		long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -3,6 +3,7 @@ package ca.bcit.utils.random;
 import ca.bcit.io.YamlSerializable;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 public abstract class UniformRandomVariable<E> extends RandomVariable<E> {
 	UniformRandomVariable() {
@@ -32,6 +33,13 @@ public abstract class UniformRandomVariable<E> extends RandomVariable<E> {
 			return objects.get(generator.nextInt(objects.size()));
 		}
 
+		@Override
+		public Generic<T> copy(UnaryOperator<T> copyValue) {
+			List<T> values = new ArrayList<>();
+			for (T object : objects) values.add(copyValue.apply(object));
+			return new Generic<>(values);
+		}
+
 		@SuppressWarnings({ "rawtypes", "unchecked" })
 		public Generic(Map map) {
 			objects = (List<T>) map.get("values");
@@ -68,5 +76,10 @@ public abstract class UniformRandomVariable<E> extends RandomVariable<E> {
 		public java.lang.Integer next() {
 			return generator.nextInt((to - from) / interval) * interval + from;
 		}
+
+		@Override
+		public Integer copy(UnaryOperator<java.lang.Integer> copyValue) {
+			return new Integer(from, to, interval);
+		}
 	}
 }